@@ -0,0 +1,89 @@
+package com.sourcegraph.toolchain.core;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.sourcegraph.toolchain.php.Corpus;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast graph data is encoded and decoded, compact JSON against binary form.
+ * Encoded sizes are printed once per fork
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BinaryGraphBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    private GraphData data;
+
+    private byte json[];
+
+    private byte binary[];
+
+    @Setup
+    public void setUp() throws IOException {
+        data = Corpus.graph(size);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeJSON(out);
+        json = out.toByteArray();
+        out = new ByteArrayOutputStream();
+        writeBinary(out);
+        binary = out.toByteArray();
+        System.out.printf("%n%s: %d defs, %d refs, JSON %d bytes, binary %d bytes (%.1f%%)%n",
+                size, data.getDefs().size(), data.getRefs().size(), json.length, binary.length,
+                100.0 * binary.length / json.length);
+    }
+
+    @Benchmark
+    public void encodeJSON() throws IOException {
+        writeJSON(new NullOutputStream());
+    }
+
+    @Benchmark
+    public void encodeBinary() throws IOException {
+        writeBinary(new NullOutputStream());
+    }
+
+    @Benchmark
+    public GraphData decodeJSON() throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json),
+                StandardCharsets.UTF_8))) {
+            return JSONUtil.gson().fromJson(reader, GraphData.class);
+        }
+    }
+
+    @Benchmark
+    public GraphData decodeBinary() throws IOException {
+        GraphData decoded = new GraphData();
+        BinaryGraphReader.read(new ByteArrayInputStream(binary), decoded);
+        return decoded;
+    }
+
+    private void writeJSON(OutputStream out) throws IOException {
+        JsonWriter writer = JSONUtil.newJsonWriter(out, true);
+        JSONUtil.gson().toJson(data, GraphData.class, writer);
+        writer.flush();
+    }
+
+    private void writeBinary(OutputStream out) throws IOException {
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(out)) {
+            for (Def def : data.getDefs()) {
+                writer.writeDef(def);
+            }
+            for (Ref ref : data.getRefs()) {
+                writer.writeRef(ref);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.sourcegraph.toolchain.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures relativization of file names of references, cached file table against resolving every name
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PathUtilBenchmark {
+
+    /**
+     * Number of references per file
+     */
+    private static final int REFS_PER_FILE = 50;
+
+    @Param({"100", "1000"})
+    int files;
+
+    /**
+     * File name of every reference, references of a file follow each other as grapher emits them
+     */
+    private String refs[];
+
+    @Setup
+    public void setUp() {
+        refs = new String[files * REFS_PER_FILE];
+        for (int i = 0; i < files; i++) {
+            String file = "src/module" + (i % 10) + "/lib/File" + i + ".php";
+            for (int j = 0; j < REFS_PER_FILE; j++) {
+                refs[i * REFS_PER_FILE + j] = file;
+            }
+        }
+        PathUtil.clearCache();
+    }
+
+    @TearDown
+    public void tearDown() {
+        PathUtil.clearCache();
+    }
+
+    @Benchmark
+    public int cached() {
+        int length = 0;
+        for (String file : refs) {
+            length += PathUtil.relativizeCwd(file).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int uncached() {
+        int length = 0;
+        for (String file : refs) {
+            length += PathUtil.relativizeCwd(Paths.get(file).toAbsolutePath()).length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,88 @@
+package com.sourcegraph.toolchain.core;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures scanning of a synthetic source tree, parallel ScanUtil.scanFiles against single-threaded
+ * walkFileTree that visits every directory. Tree has node_modules and .git directories scanFiles skips
+ * by default
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBenchmark {
+
+    private static final String EXTENSIONS[] = {".php"};
+
+    private static final int DIRECTORIES = 100;
+
+    private static final int FILES_PER_DIRECTORY = 50;
+
+    @Param({"1", "4"})
+    int threads;
+
+    private Path root;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("scan");
+        for (int i = 0; i < DIRECTORIES; i++) {
+            populate(root.resolve("src/module" + (i % 10) + "/package" + i));
+            populate(root.resolve("node_modules/dependency" + i + "/lib"));
+        }
+        populate(root.resolve(".git/objects"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Benchmark
+    public List<String> walkFileTree() throws IOException {
+        List<String> files = new LinkedList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String filename = file.toString();
+                for (String extension : EXTENSIONS) {
+                    if (filename.endsWith(extension)) {
+                        files.add(PathUtil.normalize(filename));
+                        break;
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    @Benchmark
+    public List<String> scanFiles() throws IOException {
+        return ScanUtil.scanFiles(root.toString(), EXTENSIONS, ScanUtil.DEFAULT_EXCLUDES, threads);
+    }
+
+    @Benchmark
+    public List<String> scanFilesNoExcludes() throws IOException {
+        return ScanUtil.scanFiles(root.toString(), EXTENSIONS, Collections.emptyList(), threads);
+    }
+
+    private static void populate(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (int i = 0; i < FILES_PER_DIRECTORY; i++) {
+            Files.createFile(directory.resolve("File" + i + (i % 5 == 0 ? ".js" : ".php")));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.sourcegraph.toolchain.core;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.sourcegraph.toolchain.php.Corpus;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast graph data is serialized to JSON, streaming adapters against JsonObject trees
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    @Param({"true", "false"})
+    boolean compact;
+
+    private GraphData data;
+
+    private Gson tree;
+
+    @Setup
+    public void setUp() throws IOException {
+        data = Corpus.graph(size);
+        tree = TreeSerializers.gson();
+    }
+
+    @Benchmark
+    public void serialize() throws IOException {
+        JsonWriter writer = JSONUtil.newJsonWriter(new NullOutputStream(), compact);
+        JSONUtil.gson().toJson(data, GraphData.class, writer);
+        writer.flush();
+    }
+
+    @Benchmark
+    public void serializeTree() throws IOException {
+        JsonWriter writer = JSONUtil.newJsonWriter(new NullOutputStream(), compact);
+        tree.toJson(data, GraphData.class, writer);
+        writer.flush();
+    }
+}
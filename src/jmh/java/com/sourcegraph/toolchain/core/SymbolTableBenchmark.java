@@ -0,0 +1,81 @@
+package com.sourcegraph.toolchain.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures collecting references with definition keys interned by SymbolTable against a fresh key per
+ * reference. Every reference gets a freshly built path string, as grapher makes one per reference.
+ * Heap retained by collected references is printed after every iteration, measured outside of timed calls.
+ * GC profiler disturbs this measurement, retained heap should be read from runs without it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class SymbolTableBenchmark {
+
+    /**
+     * Number of references per distinct path
+     */
+    private static final int REFS_PER_PATH = 100;
+
+    @Param({"10000"})
+    int paths;
+
+    @Param({"false", "true"})
+    boolean intern;
+
+    private char templates[][];
+
+    /**
+     * References collected by the last invocation. Kept in a field rather than returned, so that nothing
+     * else holds them when retained heap is measured
+     */
+    private Ref refs[];
+
+    @Setup
+    public void setUp() {
+        templates = new char[paths][];
+        for (int i = 0; i < paths; i++) {
+            templates[i] = ("Vendor/Package" + (i % 100) + "/Module/Class" + i + "/method").toCharArray();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        // garbage left by timed calls is not always collectable right away, measuring heap one more
+        // collection adds on top of a kept one instead
+        collect();
+        Ref kept[] = refs;
+        long used = usedHeap();
+        collect();
+        long retained = usedHeap() - used;
+        System.out.printf("%nretained %.1f MB by %d refs%n", retained / 1e6, kept.length);
+        refs = null;
+    }
+
+    @Benchmark
+    public int collect() {
+        SymbolTable symbols = intern ? new SymbolTable() : null;
+        Ref refs[] = new Ref[paths * REFS_PER_PATH];
+        for (int i = 0; i < refs.length; i++) {
+            String path = new String(templates[i % paths]);
+            refs[i] = new Ref();
+            refs[i].defKey = symbols != null ? symbols.key(path) : new DefKey(null, path);
+        }
+        this.refs = refs;
+        return refs.length;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,91 @@
+package com.sourcegraph.toolchain.core;
+
+import com.google.gson.*;
+
+import java.lang.reflect.Type;
+
+/**
+ * Serializers that build JsonObject tree for every definition, reference and for the whole graph data
+ * before writing it out. That's how graph data was serialized before streaming JSON adapters,
+ * kept as a baseline to compare JSONUtil's serialization with
+ */
+class TreeSerializers {
+
+    private TreeSerializers() {
+    }
+
+    /**
+     * @return writer implementation that serializes graph data through JsonObject trees
+     */
+    static Gson gson() {
+        GsonBuilder gsonBuilder = new GsonBuilder();
+        gsonBuilder.disableHtmlEscaping();
+        gsonBuilder.registerTypeAdapter(Def.class, new DefSerializer());
+        gsonBuilder.registerTypeAdapter(Ref.class, new RefSerializer());
+        gsonBuilder.registerTypeAdapter(GraphData.class, new GraphDataSerializer());
+        return gsonBuilder.create();
+    }
+
+    private static class DefSerializer implements JsonSerializer<Def> {
+
+        @Override
+        public JsonElement serialize(Def sym, Type arg1, JsonSerializationContext arg2) {
+            JsonObject object = new JsonObject();
+
+            if (sym.file != null) {
+                object.add("File", new JsonPrimitive(PathUtil.relativizeCwd(sym.file)));
+            }
+
+            object.add("Name", new JsonPrimitive(sym.name));
+
+            object.add("DefStart", new JsonPrimitive(sym.defStart));
+            object.add("DefEnd", new JsonPrimitive(sym.defEnd));
+
+            object.add("Kind", new JsonPrimitive(sym.kind));
+
+            object.add("Exported", new JsonPrimitive(sym.exported));
+            object.add("Local", new JsonPrimitive(sym.local));
+            object.add("Test", new JsonPrimitive(sym.test));
+
+            object.add("Path", new JsonPrimitive(sym.defKey.formatPath()));
+            object.add("TreePath", new JsonPrimitive(sym.defKey.formatTreePath()));
+
+            return object;
+        }
+    }
+
+    private static class RefSerializer implements JsonSerializer<Ref> {
+
+        @Override
+        public JsonElement serialize(Ref ref, Type arg1, JsonSerializationContext arg2) {
+            JsonObject object = new JsonObject();
+
+            if (ref.defKey.getOrigin() != null) {
+                object.addProperty("_JavaOrigin", ref.defKey.getOrigin().toString());
+            }
+
+            if (ref.defRepo != null) object.add("DefRepo", new JsonPrimitive(ref.defRepo));
+            if (ref.defUnitType != null) object.add("DefUnitType", new JsonPrimitive(ref.defUnitType));
+            if (ref.defUnit != null) object.add("DefUnit", new JsonPrimitive(ref.defUnit));
+            object.add("DefPath", new JsonPrimitive(ref.defKey.formatPath()));
+
+            object.add("File", new JsonPrimitive(PathUtil.relativizeCwd(ref.file)));
+            object.add("Start", new JsonPrimitive(ref.start));
+            object.add("End", new JsonPrimitive(ref.end));
+            object.add("Def", new JsonPrimitive(ref.def));
+
+            return object;
+        }
+    }
+
+    private static class GraphDataSerializer implements JsonSerializer<GraphData> {
+
+        @Override
+        public JsonElement serialize(GraphData src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonObject object = new JsonObject();
+            object.add("Defs", context.serialize(src.getDefs()));
+            object.add("Refs", context.serialize(src.getRefs()));
+            return object;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.core.GraphData;
+import com.sourcegraph.toolchain.php.antlr4.PHPLexer;
+import com.sourcegraph.toolchain.php.antlr4.PHPParser;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Synthetic PHP corpus used by benchmarks. Small and medium files are bundled resources,
+ * huge file is made of repeated medium one
+ */
+public class Corpus {
+
+    /**
+     * Number of times medium file is repeated to produce huge one
+     */
+    private static final int HUGE_REPEAT = 25;
+
+    /**
+     * @param size small, medium or huge
+     * @return PHP source of a given size
+     * @throws IOException
+     */
+    public static String load(String size) throws IOException {
+        if ("huge".equals(size)) {
+            return StringUtils.repeat(load("medium"), HUGE_REPEAT);
+        }
+        try (InputStream is = Corpus.class.getResourceAsStream("/corpus/" + size + ".php")) {
+            if (is == null) {
+                throw new IOException("Unknown corpus file " + size);
+            }
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param source PHP source
+     * @return lexer that does not report errors
+     */
+    public static PHPLexer lexer(String source) {
+        PHPLexer lexer = new PHPLexer(new ANTLRInputStream(source));
+        lexer.removeErrorListeners();
+        return lexer;
+    }
+
+    /**
+     * @param source PHP source
+     * @return all tokens of source, including EOF
+     */
+    public static List<Token> tokens(String source) {
+        CommonTokenStream tokens = new CommonTokenStream(lexer(source));
+        tokens.fill();
+        return tokens.getTokens();
+    }
+
+    /**
+     * Parses tokens the same way grapher does
+     * @param tokens tokens to parse
+     * @return parse tree
+     */
+    public static PHPParser.HtmlDocumentContext parse(List<Token> tokens) {
+        return new PHPGraph(null).parse(new CommonTokenStream(new ListTokenSource(tokens)),
+                new BaseErrorListener());
+    }
+
+    /**
+     * Extracts definitions and references from parse tree
+     * @param tree parse tree
+     * @param file file name to assign to definitions and references
+     * @return file graph
+     */
+    public static FileGraph walk(PHPParser.HtmlDocumentContext tree, String file) {
+        FileGraph fileGraph = new FileGraph(file);
+        ParseTreeWalker.DEFAULT.walk(new FileGrapher(fileGraph), tree);
+        fileGraph.flush();
+        return fileGraph;
+    }
+
+    /**
+     * @param size small, medium or huge
+     * @return graph of corpus file of a given size
+     * @throws IOException
+     */
+    public static GraphData graph(String size) throws IOException {
+        GraphData data = new GraphData();
+        walk(parse(tokens(load(size))), size + ".php").replay(data);
+        return data;
+    }
+}
@@ -0,0 +1,61 @@
+package com.sourcegraph.toolchain.php;
+
+import org.antlr.v4.runtime.ANTLRFileStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading of source files, Utf8FileStream with and without buffer reuse against ANTLRFileStream.
+ * Huge file is over the threshold Utf8FileStream memory-maps files from
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileStreamBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    private Path path;
+
+    private String file;
+
+    private char buffer[];
+
+    @Setup
+    public void setUp() throws IOException {
+        path = Files.createTempFile("corpus-" + size, ".php");
+        Files.write(path, Corpus.load(size).getBytes(StandardCharsets.UTF_8));
+        file = path.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public int antlrFileStream() throws IOException {
+        return new ANTLRFileStream(file, StandardCharsets.UTF_8.name()).size();
+    }
+
+    @Benchmark
+    public int utf8FileStream() throws IOException {
+        return new Utf8FileStream(file, null).size();
+    }
+
+    @Benchmark
+    public int utf8FileStreamReused() throws IOException {
+        Utf8FileStream stream = new Utf8FileStream(file, buffer);
+        buffer = stream.getBuffer();
+        return stream.size();
+    }
+}
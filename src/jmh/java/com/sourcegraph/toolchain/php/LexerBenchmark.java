@@ -0,0 +1,36 @@
+package com.sourcegraph.toolchain.php;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PHPLexer throughput
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    private String source;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = Corpus.load(size);
+    }
+
+    @Benchmark
+    public int lex() {
+        CommonTokenStream tokens = new CommonTokenStream(Corpus.lexer(source));
+        tokens.fill();
+        return tokens.size();
+    }
+}
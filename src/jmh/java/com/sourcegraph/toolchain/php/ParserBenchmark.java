@@ -0,0 +1,36 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.php.antlr4.PHPParser;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PHPParser throughput on pre-lexed tokens, using the same prediction strategy as grapher
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setUp() throws IOException {
+        tokens = Corpus.tokens(Corpus.load(size));
+    }
+
+    @Benchmark
+    public PHPParser.HtmlDocumentContext parse() {
+        return Corpus.parse(tokens);
+    }
+}
@@ -0,0 +1,34 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.php.antlr4.PHPParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast FileGrapher extracts definitions and references from parse tree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WalkerBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    private PHPParser.HtmlDocumentContext tree;
+
+    @Setup
+    public void setUp() throws IOException {
+        tree = Corpus.parse(Corpus.tokens(Corpus.load(size)));
+    }
+
+    @Benchmark
+    public FileGraph walk() {
+        return Corpus.walk(tree, size + ".php");
+    }
+}
@@ -0,0 +1,50 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.php.antlr4.PHPParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lexing and parsing of the first file in a fresh JVM, with and without PHPGraph.warmup(), against
+ * steady state. Every fork starts with empty DFA caches, so first file is measured once per fork
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(10)
+public class WarmupBenchmark {
+
+    @Param({"false", "true"})
+    boolean warmup;
+
+    @Param({"small", "medium"})
+    String size;
+
+    private String source;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = Corpus.load(size);
+        if (warmup) {
+            PHPGraph.warmup();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public PHPParser.HtmlDocumentContext firstFile() {
+        return Corpus.parse(Corpus.tokens(source));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 5)
+    @Fork(1)
+    public PHPParser.HtmlDocumentContext steadyState() {
+        return Corpus.parse(Corpus.tokens(source));
+    }
+}
@@ -0,0 +1,1984 @@
+<?php
+
+namespace Bench\Medium;
+
+use Bench\Base\Entity;
+use Bench\Base\Collection as BaseCollection;
+
+require_once 'bootstrap.php';
+
+$registry = array();
+
+interface Repository0
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model0 extends Entity implements Repository0
+{
+    const TABLE = 'model_0';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 0';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 0;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 0)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper0($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper0'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model0 = new Model0(array(1, 2, 3));
+list($status0, $items0) = helper0($model0, 5);
+
+interface Repository1
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model1 extends Entity implements Repository1
+{
+    const TABLE = 'model_1';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 1';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 1;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 1)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper1($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper1'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model1 = new Model1(array(1, 2, 3));
+list($status1, $items1) = helper1($model1, 6);
+
+interface Repository2
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model2 extends Entity implements Repository2
+{
+    const TABLE = 'model_2';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 2';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 2;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 2)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper2($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper2'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model2 = new Model2(array(1, 2, 3));
+list($status2, $items2) = helper2($model2, 7);
+
+interface Repository3
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model3 extends Entity implements Repository3
+{
+    const TABLE = 'model_3';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 3';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 3;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 3)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper3($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper3'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model3 = new Model3(array(1, 2, 3));
+list($status3, $items3) = helper3($model3, 8);
+
+interface Repository4
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model4 extends Entity implements Repository4
+{
+    const TABLE = 'model_4';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 4';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 4;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 4)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper4($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper4'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model4 = new Model4(array(1, 2, 3));
+list($status4, $items4) = helper4($model4, 9);
+
+interface Repository5
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model5 extends Entity implements Repository5
+{
+    const TABLE = 'model_5';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 5';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 5;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 5)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper5($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper5'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model5 = new Model5(array(1, 2, 3));
+list($status5, $items5) = helper5($model5, 10);
+
+interface Repository6
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model6 extends Entity implements Repository6
+{
+    const TABLE = 'model_6';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 6';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 6;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 6)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper6($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper6'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model6 = new Model6(array(1, 2, 3));
+list($status6, $items6) = helper6($model6, 11);
+
+interface Repository7
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model7 extends Entity implements Repository7
+{
+    const TABLE = 'model_7';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 7';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 7;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 7)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper7($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper7'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model7 = new Model7(array(1, 2, 3));
+list($status7, $items7) = helper7($model7, 12);
+
+interface Repository8
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model8 extends Entity implements Repository8
+{
+    const TABLE = 'model_8';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 8';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 8;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 8)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper8($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper8'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model8 = new Model8(array(1, 2, 3));
+list($status8, $items8) = helper8($model8, 13);
+
+interface Repository9
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model9 extends Entity implements Repository9
+{
+    const TABLE = 'model_9';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 9';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 9;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 9)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper9($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper9'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model9 = new Model9(array(1, 2, 3));
+list($status9, $items9) = helper9($model9, 14);
+
+interface Repository10
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model10 extends Entity implements Repository10
+{
+    const TABLE = 'model_10';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 10';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 10;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 10)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper10($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper10'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model10 = new Model10(array(1, 2, 3));
+list($status10, $items10) = helper10($model10, 15);
+
+interface Repository11
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model11 extends Entity implements Repository11
+{
+    const TABLE = 'model_11';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 11';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 11;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 11)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper11($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper11'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model11 = new Model11(array(1, 2, 3));
+list($status11, $items11) = helper11($model11, 16);
+
+interface Repository12
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model12 extends Entity implements Repository12
+{
+    const TABLE = 'model_12';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 12';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 12;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 12)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper12($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper12'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model12 = new Model12(array(1, 2, 3));
+list($status12, $items12) = helper12($model12, 17);
+
+interface Repository13
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model13 extends Entity implements Repository13
+{
+    const TABLE = 'model_13';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 13';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 13;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 13)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper13($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper13'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model13 = new Model13(array(1, 2, 3));
+list($status13, $items13) = helper13($model13, 18);
+
+interface Repository14
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model14 extends Entity implements Repository14
+{
+    const TABLE = 'model_14';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 14';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 14;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 14)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper14($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper14'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model14 = new Model14(array(1, 2, 3));
+list($status14, $items14) = helper14($model14, 19);
+
+interface Repository15
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model15 extends Entity implements Repository15
+{
+    const TABLE = 'model_15';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 15';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 15;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 15)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper15($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper15'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model15 = new Model15(array(1, 2, 3));
+list($status15, $items15) = helper15($model15, 20);
+
+interface Repository16
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model16 extends Entity implements Repository16
+{
+    const TABLE = 'model_16';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 16';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 16;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 16)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper16($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper16'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model16 = new Model16(array(1, 2, 3));
+list($status16, $items16) = helper16($model16, 21);
+
+interface Repository17
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model17 extends Entity implements Repository17
+{
+    const TABLE = 'model_17';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 17';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 17;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 17)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper17($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper17'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model17 = new Model17(array(1, 2, 3));
+list($status17, $items17) = helper17($model17, 22);
+
+interface Repository18
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model18 extends Entity implements Repository18
+{
+    const TABLE = 'model_18';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 18';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 18;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 18)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper18($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper18'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model18 = new Model18(array(1, 2, 3));
+list($status18, $items18) = helper18($model18, 23);
+
+interface Repository19
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model19 extends Entity implements Repository19
+{
+    const TABLE = 'model_19';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 19';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 19;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 19)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper19($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper19'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model19 = new Model19(array(1, 2, 3));
+list($status19, $items19) = helper19($model19, 24);
+
+interface Repository20
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model20 extends Entity implements Repository20
+{
+    const TABLE = 'model_20';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 20';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 20;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 20)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper20($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper20'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model20 = new Model20(array(1, 2, 3));
+list($status20, $items20) = helper20($model20, 25);
+
+interface Repository21
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model21 extends Entity implements Repository21
+{
+    const TABLE = 'model_21';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 21';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 21;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 21)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper21($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper21'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model21 = new Model21(array(1, 2, 3));
+list($status21, $items21) = helper21($model21, 26);
+
+interface Repository22
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model22 extends Entity implements Repository22
+{
+    const TABLE = 'model_22';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 22';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 22;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 22)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper22($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper22'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model22 = new Model22(array(1, 2, 3));
+list($status22, $items22) = helper22($model22, 27);
+
+interface Repository23
+{
+    public function find($id);
+
+    public function save(Entity $entity);
+}
+
+class Model23 extends Entity implements Repository23
+{
+    const TABLE = 'model_23';
+
+    protected static $instances = 0;
+    private $items = array();
+    public $label = 'model 23';
+
+    public function __construct(array $items = array())
+    {
+        parent::__construct();
+        $this->items = $items;
+        self::$instances++;
+    }
+
+    public function find($id)
+    {
+        if (isset($this->items[$id])) {
+            return $this->items[$id];
+        }
+        return null;
+    }
+
+    public function save(Entity $entity)
+    {
+        $id = count($this->items) + 23;
+        $this->items[$id] = $entity;
+        return $id;
+    }
+
+    public function total($factor = 23)
+    {
+        $sum = 0;
+        foreach ($this->items as $key => $item) {
+            $sum += $item->weight * $factor;
+            if ($sum > 1000) {
+                break;
+            }
+        }
+        for ($n = 0; $n < $factor; $n++) {
+            $sum = $sum % 7 === 0 ? $sum / 7 : $sum - $n;
+        }
+        return $sum;
+    }
+}
+
+function helper23($model, $limit = 10)
+{
+    global $registry;
+    $result = array();
+    $count = 0;
+    while ($count < $limit) {
+        $found = $model->find($count);
+        if ($found !== null) {
+            $result[] = $found;
+        }
+        $count++;
+    }
+    $registry['helper23'] = $result;
+    switch (count($result)) {
+        case 0:
+            $status = 'empty';
+            break;
+        case 1:
+            $status = 'single';
+            break;
+        default:
+            $status = "many: " . count($result);
+    }
+    return array($status, $result);
+}
+
+$model23 = new Model23(array(1, 2, 3));
+list($status23, $items23) = helper23($model23, 28);
+?>
+<ul>
+<?php foreach ($registry as $name => $values): ?>
+    <li><?= $name ?>: <?= count($values) ?></li>
+<?php endforeach; ?>
+</ul>
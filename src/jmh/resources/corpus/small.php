@@ -0,0 +1,35 @@
+<?php
+
+include 'config.php';
+
+$greeting = 'Hello';
+
+function greet($name, $punctuation = '!')
+{
+    global $greeting;
+    $message = $greeting . ', ' . $name . $punctuation;
+    return $message;
+}
+
+class Greeter
+{
+    private $names = array();
+
+    public function add($name)
+    {
+        $this->names[] = $name;
+        return $this;
+    }
+
+    public function greetAll()
+    {
+        foreach ($this->names as $name) {
+            echo greet($name), "\n";
+        }
+    }
+}
+
+$greeter = new Greeter();
+$greeter->add('World')->add('PHP')->greetAll();
+?>
+<p><?= greet('template') ?></p>
@@ -583,7 +583,8 @@ indirectTypeRef
     ;
 
 qualifiedNamespaceName
-    : Namespace? '\\'? namespaceNameList
+    : Namespace '\\' namespaceNameList
+    | '\\'? namespaceNameList
     ;
 
 namespaceNameList
@@ -0,0 +1,179 @@
+package com.sourcegraph.toolchain.core;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Reads graph written by BinaryGraphWriter. Converts it back to JSON produced by GraphData, with references of
+ * each file ordered by offset, or replays it into another graph writer. Decoding is streaming, only the string
+ * table is kept in memory.
+ *
+ * May be run from command line to convert binary file (or standard input if file is "-") to JSON written
+ * to standard output: BinaryGraphReader FILE [--pretty]
+ */
+public class BinaryGraphReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: BinaryGraphReader FILE|- [--pretty]");
+            System.exit(1);
+        }
+        boolean compact = args.length < 2 || !"--pretty".equals(args[1]);
+        try (InputStream in = "-".equals(args[0]) ? System.in : Files.newInputStream(Paths.get(args[0]))) {
+            toJSON(in, System.out, compact);
+        }
+    }
+
+    /**
+     * Converts binary graph to JSON
+     * @param in stream to read binary graph from
+     * @param out stream to write JSON to
+     * @param compact produce minified JSON if true, pretty-printed JSON otherwise
+     * @throws IOException if stream cannot be read or does not contain binary graph
+     */
+    public static void toJSON(InputStream in, OutputStream out, boolean compact) throws IOException {
+        Gson gson = JSONUtil.gson();
+        JsonWriter w = JSONUtil.newJsonWriter(out, compact);
+        Decoder decoder = new Decoder(in);
+        w.beginObject();
+        w.name("Defs").beginArray();
+        decoder.readDefs(def -> gson.toJson(def, Def.class, w));
+        w.endArray();
+        w.name("Refs").beginArray();
+        decoder.readRefs(ref -> gson.toJson(ref, Ref.class, w));
+        w.endArray();
+        w.endObject();
+        w.flush();
+    }
+
+    /**
+     * Decodes binary graph writing its definitions and references to a given writer
+     * @param in stream to read binary graph from
+     * @param writer writer to pass definitions and references to
+     * @throws IOException if stream cannot be read or does not contain binary graph
+     */
+    public static void read(InputStream in, GraphWriter writer) throws IOException {
+        Decoder decoder = new Decoder(in);
+        decoder.readDefs(writer::writeDef);
+        decoder.readRefs(writer::writeRef);
+        writer.flush();
+    }
+
+    private interface Sink<T> {
+
+        void write(T item) throws IOException;
+    }
+
+    private static class Decoder {
+
+        private final DataInputStream is;
+
+        private final String strings[];
+
+        Decoder(InputStream in) throws IOException {
+            is = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+            byte magic[] = new byte[BinaryGraphWriter.MAGIC.length];
+            is.readFully(magic);
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != BinaryGraphWriter.MAGIC[i]) {
+                    throw new IOException("Not a binary graph");
+                }
+            }
+            int version = readVarint();
+            if (version != BinaryGraphWriter.VERSION) {
+                throw new IOException("Unsupported binary graph version " + version);
+            }
+            strings = new String[readVarint()];
+            for (int i = 0; i < strings.length; i++) {
+                byte bytes[] = new byte[readVarint()];
+                is.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        void readDefs(Sink<Def> sink) throws IOException {
+            for (int count = readVarint(); count > 0; count--) {
+                int flags = is.readUnsignedByte();
+                Def def = new Def();
+                String path = readString();
+                String origin = (flags & BinaryGraphWriter.DEF_ORIGIN) != 0 ? readString() : null;
+                def.defKey = new DefKey(origin == null ? null : URI.create(origin), path);
+                def.name = readString();
+                def.kind = readString();
+                if ((flags & BinaryGraphWriter.DEF_FILE) != 0) {
+                    def.file = readString();
+                }
+                def.defStart = readVarint();
+                def.defEnd = def.defStart + unzigzag(readVarint());
+                def.exported = (flags & BinaryGraphWriter.DEF_EXPORTED) != 0;
+                def.local = (flags & BinaryGraphWriter.DEF_LOCAL) != 0;
+                def.test = (flags & BinaryGraphWriter.DEF_TEST) != 0;
+                sink.write(def);
+            }
+        }
+
+        void readRefs(Sink<Ref> sink) throws IOException {
+            for (int files = readVarint(); files > 0; files--) {
+                String file = readString();
+                int start = 0;
+                for (int count = readVarint(); count > 0; count--) {
+                    int flags = is.readUnsignedByte();
+                    Ref ref = new Ref();
+                    ref.file = file;
+                    start += readVarint();
+                    ref.start = start;
+                    ref.end = start + unzigzag(readVarint());
+                    ref.def = (flags & BinaryGraphWriter.REF_DEF) != 0;
+                    String path = readString();
+                    String origin = (flags & BinaryGraphWriter.REF_ORIGIN) != 0 ? readString() : null;
+                    ref.defKey = new DefKey(origin == null ? null : URI.create(origin), path);
+                    if ((flags & BinaryGraphWriter.REF_REPO) != 0) {
+                        ref.defRepo = readString();
+                    }
+                    if ((flags & BinaryGraphWriter.REF_UNIT_TYPE) != 0) {
+                        ref.defUnitType = readString();
+                    }
+                    if ((flags & BinaryGraphWriter.REF_UNIT) != 0) {
+                        ref.defUnit = readString();
+                    }
+                    sink.write(ref);
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            int index = readVarint();
+            if (index == 0) {
+                return null;
+            }
+            if (index > strings.length) {
+                throw new IOException("String index " + index + " is out of range");
+            }
+            return strings[index - 1];
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = is.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private static int unzigzag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
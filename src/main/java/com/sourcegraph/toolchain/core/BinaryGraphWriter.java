@@ -0,0 +1,203 @@
+package com.sourcegraph.toolchain.core;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Implementation of graph writer that collects definitions and references the same way GraphData does and
+ * writes them in compact binary form, which BinaryGraphReader converts back to JSON.
+ *
+ * Format: magic and version, string table, definitions, references grouped by file. Numbers are unsigned LEB128
+ * varints, signed ones are zigzag-encoded first. Strings are referenced by their one-based index in the table,
+ * zero index stands for null. File names are stored relative to current working directory, as in JSON.
+ * References of each file are sorted by offset and their start offsets are delta-encoded, end offsets are stored
+ * as lengths.
+ * <pre>
+ * file      := MAGIC VERSION strings defs files
+ * strings   := count (length utf8-bytes)*
+ * defs      := count (flags path-index [origin-index] name-index kind-index [file-index] start zigzag(end-start))*
+ * files     := count (file-index count (flags start-delta zigzag(end-start) path-index [origin-index]
+ *              [repo-index] [unit-type-index] [unit-index])*)*
+ * </pre>
+ * Optional values are present when the corresponding flag is set
+ */
+public class BinaryGraphWriter implements GraphWriter, Closeable {
+
+    static final byte MAGIC[] = {'S', 'G', 'R', 'B'};
+
+    static final int VERSION = 1;
+
+    static final int DEF_EXPORTED = 1;
+    static final int DEF_LOCAL = 1 << 1;
+    static final int DEF_TEST = 1 << 2;
+    static final int DEF_ORIGIN = 1 << 3;
+    static final int DEF_FILE = 1 << 4;
+
+    static final int REF_DEF = 1;
+    static final int REF_ORIGIN = 1 << 1;
+    static final int REF_REPO = 1 << 2;
+    static final int REF_UNIT_TYPE = 1 << 3;
+    static final int REF_UNIT = 1 << 4;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+
+    private final GraphData data = new GraphData();
+
+    /**
+     * string => index in string table
+     */
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+    /**
+     * @param out stream to write to
+     */
+    public BinaryGraphWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void writeRef(Ref r) throws IOException {
+        data.writeRef(r);
+    }
+
+    @Override
+    public void writeDef(Def s) throws IOException {
+        data.writeDef(s);
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    /**
+     * Encodes collected definitions and references. No definitions or references can be written after
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        Collection<Def> defs = data.getDefs();
+        // relative file name => references sorted by offset
+        Map<String, List<Ref>> files = new LinkedHashMap<>();
+        for (Ref ref : data.getRefs()) {
+            files.computeIfAbsent(PathUtil.relativizeCwd(ref.file), file -> new ArrayList<>()).add(ref);
+        }
+
+        // string table goes first, so it is collected by a separate pass
+        for (Def def : defs) {
+            index(def.defKey.formatPath());
+            index(origin(def.defKey));
+            index(def.name);
+            index(def.kind);
+            if (def.file != null) {
+                index(PathUtil.relativizeCwd(def.file));
+            }
+        }
+        for (Map.Entry<String, List<Ref>> file : files.entrySet()) {
+            index(file.getKey());
+            List<Ref> refs = file.getValue();
+            refs.sort(Comparator.comparingInt((Ref ref) -> ref.start).thenComparingInt(ref -> ref.end));
+            for (Ref ref : refs) {
+                index(ref.defKey.formatPath());
+                index(origin(ref.defKey));
+                index(ref.defRepo);
+                index(ref.defUnitType);
+                index(ref.defUnit);
+            }
+        }
+
+        DataOutputStream os = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        os.write(MAGIC);
+        writeVarint(os, VERSION);
+        writeVarint(os, strings.size());
+        for (String s : strings.keySet()) {
+            byte bytes[] = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(os, bytes.length);
+            os.write(bytes);
+        }
+
+        writeVarint(os, defs.size());
+        for (Def def : defs) {
+            String origin = origin(def.defKey);
+            int flags = (def.exported ? DEF_EXPORTED : 0) |
+                    (def.local ? DEF_LOCAL : 0) |
+                    (def.test ? DEF_TEST : 0) |
+                    (origin != null ? DEF_ORIGIN : 0) |
+                    (def.file != null ? DEF_FILE : 0);
+            os.writeByte(flags);
+            writeString(os, def.defKey.formatPath());
+            if (origin != null) {
+                writeString(os, origin);
+            }
+            writeString(os, def.name);
+            writeString(os, def.kind);
+            if (def.file != null) {
+                writeString(os, PathUtil.relativizeCwd(def.file));
+            }
+            writeVarint(os, def.defStart);
+            writeVarint(os, zigzag(def.defEnd - def.defStart));
+        }
+
+        writeVarint(os, files.size());
+        for (Map.Entry<String, List<Ref>> file : files.entrySet()) {
+            writeString(os, file.getKey());
+            List<Ref> refs = file.getValue();
+            writeVarint(os, refs.size());
+            int prev = 0;
+            for (Ref ref : refs) {
+                String origin = origin(ref.defKey);
+                int flags = (ref.def ? REF_DEF : 0) |
+                        (origin != null ? REF_ORIGIN : 0) |
+                        (ref.defRepo != null ? REF_REPO : 0) |
+                        (ref.defUnitType != null ? REF_UNIT_TYPE : 0) |
+                        (ref.defUnit != null ? REF_UNIT : 0);
+                os.writeByte(flags);
+                writeVarint(os, ref.start - prev);
+                writeVarint(os, zigzag(ref.end - ref.start));
+                prev = ref.start;
+                writeString(os, ref.defKey.formatPath());
+                if (origin != null) {
+                    writeString(os, origin);
+                }
+                if (ref.defRepo != null) {
+                    writeString(os, ref.defRepo);
+                }
+                if (ref.defUnitType != null) {
+                    writeString(os, ref.defUnitType);
+                }
+                if (ref.defUnit != null) {
+                    writeString(os, ref.defUnit);
+                }
+            }
+        }
+        os.flush();
+    }
+
+    private void index(String s) {
+        if (s != null) {
+            strings.putIfAbsent(s, strings.size());
+        }
+    }
+
+    private void writeString(DataOutput os, String s) throws IOException {
+        writeVarint(os, s == null ? 0 : strings.get(s) + 1);
+    }
+
+    private static String origin(DefKey defKey) {
+        return defKey.getOrigin() == null ? null : defKey.getOrigin().toString();
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static void writeVarint(DataOutput os, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            os.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        os.writeByte(value);
+    }
+}
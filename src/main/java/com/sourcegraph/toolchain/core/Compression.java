@@ -0,0 +1,56 @@
+package com.sourcegraph.toolchain.core;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of command output. Output is compressed on the fly, in the same pass it is produced
+ */
+public enum Compression {
+
+    NONE,
+
+    /**
+     * gzip format, may be read with gunzip or GZIPInputStream
+     */
+    GZIP,
+
+    /**
+     * zlib format, may be read with InflaterInputStream
+     */
+    DEFLATE;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Wraps stream into a buffered one that compresses data written to it. Nothing is flushed until buffer is full
+     * or stream is closed, closing completes compressed data and closes underlying stream
+     * @param out stream to write to
+     * @return stream to write uncompressed data to
+     * @throws IOException
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE:
+                return new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            // deflater provided by caller is not released by DeflaterOutputStream
+                            def.end();
+                        }
+                    }
+                };
+            default:
+                return new BufferedOutputStream(out, BUFFER_SIZE);
+        }
+    }
+}
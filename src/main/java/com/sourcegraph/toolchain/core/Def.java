@@ -1,8 +1,11 @@
 package com.sourcegraph.toolchain.core;
 
-import com.google.gson.*;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 /**
  * Definition object
@@ -88,31 +91,78 @@ public class Def {
     /**
      * JSON serialization rules for definition objects
      */
-    static class JSONSerializer implements JsonSerializer<Def> {
+    static class JSONAdapter extends TypeAdapter<Def> {
 
         @Override
-        public JsonElement serialize(Def sym, Type arg1, JsonSerializationContext arg2) {
-            JsonObject object = new JsonObject();
+        public void write(JsonWriter out, Def sym) throws IOException {
+            out.beginObject();
 
             if (sym.file != null) {
-                object.add("File", new JsonPrimitive(PathUtil.relativizeCwd(sym.file)));
+                out.name("File").value(PathUtil.relativizeCwd(sym.file));
             }
 
-            object.add("Name", new JsonPrimitive(sym.name));
+            out.name("Name").value(sym.name);
 
-            object.add("DefStart", new JsonPrimitive(sym.defStart));
-            object.add("DefEnd", new JsonPrimitive(sym.defEnd));
+            out.name("DefStart").value(sym.defStart);
+            out.name("DefEnd").value(sym.defEnd);
 
-            object.add("Kind", new JsonPrimitive(sym.kind));
+            out.name("Kind").value(sym.kind);
 
-            object.add("Exported", new JsonPrimitive(sym.exported));
-            object.add("Local", new JsonPrimitive(sym.local));
-            object.add("Test", new JsonPrimitive(sym.test));
+            out.name("Exported").value(sym.exported);
+            out.name("Local").value(sym.local);
+            out.name("Test").value(sym.test);
 
-            object.add("Path", new JsonPrimitive(sym.defKey.formatPath()));
-            object.add("TreePath", new JsonPrimitive(sym.defKey.formatTreePath()));
+            out.name("Path").value(sym.defKey.formatPath());
+            out.name("TreePath").value(sym.defKey.formatTreePath());
 
-            return object;
+            out.endObject();
+        }
+
+        @Override
+        public Def read(JsonReader in) throws IOException {
+            Def sym = new Def();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "File":
+                        sym.file = in.nextString();
+                        break;
+                    case "Name":
+                        sym.name = in.nextString();
+                        break;
+                    case "DefStart":
+                        sym.defStart = in.nextInt();
+                        break;
+                    case "DefEnd":
+                        sym.defEnd = in.nextInt();
+                        break;
+                    case "Kind":
+                        sym.kind = in.nextString();
+                        break;
+                    case "Exported":
+                        sym.exported = in.nextBoolean();
+                        break;
+                    case "Local":
+                        sym.local = in.nextBoolean();
+                        break;
+                    case "Test":
+                        sym.test = in.nextBoolean();
+                        break;
+                    case "Path":
+                        sym.defKey = new DefKey(null, in.nextString());
+                        break;
+                    default:
+                        // TreePath is derived from Path
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return sym;
         }
 
     }
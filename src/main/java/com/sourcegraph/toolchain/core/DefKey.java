@@ -11,6 +11,10 @@ public class DefKey {
     private final URI origin;
     private final String path;
 
+    /**
+     * Cached hash code, zero if not computed yet. Transient to be recomputed after deserialization
+     */
+    private transient int hash;
 
     public DefKey(URI origin, String path) {
         this.origin = origin;
@@ -40,8 +44,12 @@ public class DefKey {
 
     @Override
     public int hashCode() {
-        int result = origin != null ? origin.hashCode() : 0;
-        result = 31 * result + (path != null ? path.hashCode() : 0);
+        int result = hash;
+        if (result == 0) {
+            result = origin != null ? origin.hashCode() : 0;
+            result = 31 * result + (path != null ? path.hashCode() : 0);
+            hash = result;
+        }
         return result;
     }
 
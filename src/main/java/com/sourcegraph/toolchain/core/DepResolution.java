@@ -0,0 +1,28 @@
+package com.sourcegraph.toolchain.core;
+
+/**
+ * Result of raw dependency resolution, produced by depresolve command
+ */
+public class DepResolution {
+
+    /**
+     * Dependency being resolved
+     */
+    public RawDependency Raw;
+
+    /**
+     * Resolved target, null if dependency cannot be resolved
+     */
+    public ResolvedTarget Target;
+
+    /**
+     * Resolution error, if any
+     */
+    public String Error;
+
+    public DepResolution(RawDependency raw, ResolvedTarget target, String error) {
+        this.Raw = raw;
+        this.Target = target;
+        this.Error = error;
+    }
+}
@@ -1,11 +1,13 @@
 package com.sourcegraph.toolchain.core;
 
-import com.google.gson.*;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -45,13 +47,75 @@ public class GraphData implements GraphWriter {
     public void flush() throws IOException {
     }
 
-    static class JSONSerializer implements JsonSerializer<GraphData> {
+    /**
+     * @return collected definitions in the order they were written
+     */
+    Collection<Def> getDefs() {
+        return defs.keySet();
+    }
+
+    /**
+     * @return collected references in the order they were written
+     */
+    Collection<Ref> getRefs() {
+        return refs;
+    }
+
+    /**
+     * JSON serialization rules for graph data, writes and reads definitions and references one by one
+     */
+    static class JSONAdapter extends TypeAdapter<GraphData> {
+
+        private final TypeAdapter<Def> defAdapter = new Def.JSONAdapter();
+        private final TypeAdapter<Ref> refAdapter = new Ref.JSONAdapter();
+
+        @Override
+        public void write(JsonWriter out, GraphData src) throws IOException {
+            out.beginObject();
+            out.name("Defs").beginArray();
+            for (Def def : src.defs.keySet()) {
+                defAdapter.write(out, def);
+            }
+            out.endArray();
+            out.name("Refs").beginArray();
+            for (Ref ref : src.refs) {
+                refAdapter.write(out, ref);
+            }
+            out.endArray();
+            out.endObject();
+        }
+
         @Override
-        public JsonElement serialize(GraphData src, Type typeOfSrc, JsonSerializationContext context) {
-            JsonObject object = new JsonObject();
-            object.add("Defs", context.serialize(src.defs.keySet()));
-            object.add("Refs", context.serialize(src.refs));
-            return object;
+        public GraphData read(JsonReader in) throws IOException {
+            GraphData data = new GraphData();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "Defs":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            data.writeDef(defAdapter.read(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "Refs":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            data.writeRef(refAdapter.read(in));
+                        }
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return data;
         }
     }
 }
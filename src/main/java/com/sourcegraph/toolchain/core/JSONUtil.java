@@ -2,10 +2,12 @@ package com.sourcegraph.toolchain.core;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import org.apache.commons.io.IOUtils;
 
+import java.io.BufferedWriter;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
@@ -14,27 +16,76 @@ import java.nio.charset.StandardCharsets;
  */
 public class JSONUtil {
 
+    private static final Gson PRETTY = gson(true);
+
+    private static final Gson COMPACT = gson(false);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
     /**
-     * Writes object as UTF-8 JSON
+     * Writes object as pretty-printed UTF-8 JSON
      * @param o object to write
      */
     public static void writeJSON(Object o) {
-        Writer w = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true);
-        gson().toJson(o, w);
+        writeJSON(o, false);
+    }
+
+    /**
+     * Writes object as UTF-8 JSON
+     * @param o object to write
+     * @param compact produce minified JSON if true, pretty-printed JSON otherwise
+     */
+    public static void writeJSON(Object o, boolean compact) {
+        writeJSON(o, compact, System.out);
+    }
+
+    /**
+     * Writes object as UTF-8 JSON and closes stream
+     * @param o object to write
+     * @param compact produce minified JSON if true, pretty-printed JSON otherwise
+     * @param out stream to write to
+     */
+    public static void writeJSON(Object o, boolean compact, OutputStream out) {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        (compact ? COMPACT : PRETTY).toJson(o, w);
         IOUtils.closeQuietly(w);
     }
 
+    /**
+     * Constructs new JSON writer that produces UTF-8 JSON formatted the same way as writeJSON does
+     * @param out stream to write to
+     * @param compact produce minified JSON if true, pretty-printed JSON otherwise
+     * @return JSON writer
+     */
+    public static JsonWriter newJsonWriter(OutputStream out, boolean compact) {
+        JsonWriter w = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        if (!compact) {
+            w.setIndent("  ");
+        }
+        return w;
+    }
+
+    /**
+     * @return configured writer implementation, formatting settings are ignored when writing to JsonWriter
+     */
+    static Gson gson() {
+        return COMPACT;
+    }
+
     /**
      * Constructs new writer implementation
+     * @param pretty enables pretty printing
      * @return configured writer implementation
      */
-    private static Gson gson() {
+    private static Gson gson(boolean pretty) {
         GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.setPrettyPrinting();
+        if (pretty) {
+            gsonBuilder.setPrettyPrinting();
+        }
         gsonBuilder.disableHtmlEscaping();
-        gsonBuilder.registerTypeAdapter(Def.class, new Def.JSONSerializer());
-        gsonBuilder.registerTypeAdapter(Ref.class, new Ref.JSONSerializer());
-        gsonBuilder.registerTypeAdapter(GraphData.class, new GraphData.JSONSerializer());
+        gsonBuilder.registerTypeAdapter(Def.class, new Def.JSONAdapter());
+        gsonBuilder.registerTypeAdapter(Ref.class, new Ref.JSONAdapter());
+        gsonBuilder.registerTypeAdapter(GraphData.class, new GraphData.JSONAdapter());
         return gsonBuilder.create();
     }
 
@@ -6,6 +6,8 @@ import org.apache.commons.lang3.SystemUtils;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Path utilities
@@ -17,6 +19,13 @@ public class PathUtil {
      */
     public static final Path CWD = SystemUtils.getUserDir().toPath().toAbsolutePath().normalize();
 
+    /**
+     * File table, path => path relative to current working directory. Both source paths and relativized ones
+     * are keys, the latter map to themselves, so every file name gets a single canonical instance.
+     * Holds files of a single command run, see {@link #clearCache()}
+     */
+    private static final Map<String, String> RELATIVE_PATHS = new ConcurrentHashMap<>();
+
     /**
      * Normalizes path string by translating it to Unix-style (foo\bar => foo/bar)
      * @param path path to normalize
@@ -35,10 +44,29 @@ public class PathUtil {
      * @param path path to process
      * @return path translated relative to current directory, if path is located inside current directory or
      * absolute path otherwise. For example, for path /foo/bar/baz and CWD /foo/bar result will be bar;
-     * for path /foo/bar/baz and CWD /kaboom/bar result will be /foo/bar/baz
+     * for path /foo/bar/baz and CWD /kaboom/bar result will be /foo/bar/baz.
+     * Results are cached, the same instance is returned for the same file
      */
     public static String relativizeCwd(String path) {
-        return relativizeCwd(Paths.get(path).toAbsolutePath());
+        String relative = RELATIVE_PATHS.get(path);
+        if (relative != null) {
+            return relative;
+        }
+        relative = relativizeCwd(Paths.get(path).toAbsolutePath());
+        String canonical = RELATIVE_PATHS.putIfAbsent(relative, relative);
+        if (canonical != null) {
+            relative = canonical;
+        }
+        RELATIVE_PATHS.put(path, relative);
+        return relative;
+    }
+
+    /**
+     * Drops file table built by {@link #relativizeCwd(String)}. Long-running process calls it after every command
+     * so that the table does not grow with files of all the commands executed
+     */
+    public static void clearCache() {
+        RELATIVE_PATHS.clear();
     }
 
     /**
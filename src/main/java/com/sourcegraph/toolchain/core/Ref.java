@@ -1,9 +1,13 @@
 package com.sourcegraph.toolchain.core;
 
-import com.google.gson.*;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.apache.commons.lang3.StringUtils;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.net.URI;
 
 /**
  * Reference to a definition object
@@ -96,28 +100,77 @@ public class Ref {
     /**
      * JSON serialization rules for reference objects
      */
-    static class JSONSerializer implements JsonSerializer<Ref> {
+    static class JSONAdapter extends TypeAdapter<Ref> {
 
         @Override
-        public JsonElement serialize(Ref ref, Type arg1, JsonSerializationContext arg2) {
-            JsonObject object = new JsonObject();
+        public void write(JsonWriter out, Ref ref) throws IOException {
+            out.beginObject();
 
             if (ref.defKey.getOrigin() != null) {
                 // Add for easier debugging.
-                object.addProperty("_JavaOrigin", ref.defKey.getOrigin().toString());
+                out.name("_JavaOrigin").value(ref.defKey.getOrigin().toString());
             }
 
-            if (ref.defRepo != null) object.add("DefRepo", new JsonPrimitive(ref.defRepo));
-            if (ref.defUnitType != null) object.add("DefUnitType", new JsonPrimitive(ref.defUnitType));
-            if (ref.defUnit != null) object.add("DefUnit", new JsonPrimitive(ref.defUnit));
-            object.add("DefPath", new JsonPrimitive(ref.defKey.formatPath()));
+            if (ref.defRepo != null) out.name("DefRepo").value(ref.defRepo);
+            if (ref.defUnitType != null) out.name("DefUnitType").value(ref.defUnitType);
+            if (ref.defUnit != null) out.name("DefUnit").value(ref.defUnit);
+            out.name("DefPath").value(ref.defKey.formatPath());
 
-            object.add("File", new JsonPrimitive(PathUtil.relativizeCwd(ref.file)));
-            object.add("Start", new JsonPrimitive(ref.start));
-            object.add("End", new JsonPrimitive(ref.end));
-            object.add("Def", new JsonPrimitive(ref.def));
+            out.name("File").value(PathUtil.relativizeCwd(ref.file));
+            out.name("Start").value(ref.start);
+            out.name("End").value(ref.end);
+            out.name("Def").value(ref.def);
 
-            return object;
+            out.endObject();
+        }
+
+        @Override
+        public Ref read(JsonReader in) throws IOException {
+            Ref ref = new Ref();
+            URI origin = null;
+            String path = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "_JavaOrigin":
+                        origin = URI.create(in.nextString());
+                        break;
+                    case "DefRepo":
+                        ref.defRepo = in.nextString();
+                        break;
+                    case "DefUnitType":
+                        ref.defUnitType = in.nextString();
+                        break;
+                    case "DefUnit":
+                        ref.defUnit = in.nextString();
+                        break;
+                    case "DefPath":
+                        path = in.nextString();
+                        break;
+                    case "File":
+                        ref.file = in.nextString();
+                        break;
+                    case "Start":
+                        ref.start = in.nextInt();
+                        break;
+                    case "End":
+                        ref.end = in.nextInt();
+                        break;
+                    case "Def":
+                        ref.def = in.nextBoolean();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            ref.defKey = new DefKey(origin, path);
+            return ref;
         }
 
     }
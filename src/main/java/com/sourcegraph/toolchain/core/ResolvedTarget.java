@@ -3,23 +3,23 @@ package com.sourcegraph.toolchain.core;
 /**
  * Contains information where we can retrieve definition source code
  */
-class ResolvedTarget {
+public class ResolvedTarget {
     /**
      * Repository SCM URI
      */
-    String ToRepoCloneURL;
+    public String ToRepoCloneURL;
     /**
      * Source unit name
      */
-    String ToUnit;
+    public String ToUnit;
     /**
      * Source unit type
      */
-    String ToUnitType;
+    public String ToUnitType;
     /**
      * Version
      */
-    String ToVersionString;
+    public String ToVersionString;
 
     @Override
     public boolean equals(Object o) {
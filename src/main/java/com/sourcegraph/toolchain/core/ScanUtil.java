@@ -4,10 +4,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * File scan utilities
@@ -17,35 +19,168 @@ public class ScanUtil {
     private static final Logger LOGGER = LoggerFactory.getLogger(ScanUtil.class);
 
     /**
-     * Recursively finds matching files in a given source directory
+     * Directories that are never scanned unless excludes are given explicitly
+     */
+    public static final List<String> DEFAULT_EXCLUDES = Collections.unmodifiableList(
+            Arrays.asList(".git", ".hg", ".svn", "node_modules"));
+
+    /**
+     * Recursively finds matching files in a given source directory, skipping default excludes
      * @param rootDir source directory to scan for files
      * @param extensions list of extensions
      * @return list of found java files
      */
     public static List<String> scanFiles(String rootDir, String extensions[]) throws IOException {
-        final List<String> files = new LinkedList<>();
-
-        if (Files.exists(Paths.get(rootDir))) {
-            Files.walkFileTree(Paths.get(rootDir), new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    String filename = file.toString();
-                    for (String extension : extensions) {
-                        if (filename.endsWith(extension)) {
-                            filename = PathUtil.normalize(filename);
-                            if (filename.startsWith("./"))
-                                filename = filename.substring(2);
-                            files.add(filename);
-                            break;
-                        }
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        } else {
+        return scanFiles(rootDir, extensions, DEFAULT_EXCLUDES, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Recursively finds matching files in a given source directory. Subdirectories are scanned in parallel,
+     * excluded ones are not entered at all
+     * @param rootDir source directory to scan for files
+     * @param extensions list of extensions
+     * @param excludes glob patterns of files and directories to skip. Pattern excludes entry if it matches
+     *                 either entry's name or entry's path relative to source directory,
+     *                 for example "vendor", "*.tpl.php" or "app/cache". Pattern that starts with "/" is
+     *                 anchored to source directory and matches relative path only, for example "/vendor"
+     * @param threads number of threads to scan directories with
+     * @return list of found files, in no particular order
+     */
+    public static List<String> scanFiles(String rootDir,
+                                         String extensions[],
+                                         Collection<String> excludes,
+                                         int threads) throws IOException {
+        Path root = Paths.get(rootDir);
+        if (!Files.exists(root)) {
             LOGGER.warn("{} does not exist, skipping", rootDir);
+            return new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        FileSystem fs = root.getFileSystem();
+        List<PathMatcher> matchers = new ArrayList<>();
+        List<PathMatcher> anchored = new ArrayList<>();
+        for (String exclude : excludes) {
+            if (exclude.startsWith("/")) {
+                anchored.add(fs.getPathMatcher("glob:" + exclude.substring(1)));
+            } else {
+                matchers.add(fs.getPathMatcher("glob:" + exclude));
+            }
         }
+        Scanner scanner = new Scanner(root, extensions, matchers, anchored);
 
+        List<String> files;
+        if (Files.isDirectory(root)) {
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+            try {
+                files = pool.invoke(scanner.new DirectoryTask(root));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            files = new ArrayList<>();
+            scanner.visitFile(root, files);
+        }
+        LOGGER.debug("Found {} files in {} in {} ms", files.size(), rootDir, (System.nanoTime() - start) / 1000000);
         return files;
     }
+
+    /**
+     * Holds scan settings shared by directory tasks
+     */
+    private static class Scanner {
+
+        private final Path root;
+        private final String extensions[];
+        private final List<PathMatcher> excludes;
+
+        /**
+         * Excludes matched against path relative to root only
+         */
+        private final List<PathMatcher> anchored;
+
+        Scanner(Path root, String extensions[], List<PathMatcher> excludes, List<PathMatcher> anchored) {
+            this.root = root;
+            this.extensions = extensions;
+            this.excludes = excludes;
+            this.anchored = anchored;
+        }
+
+        boolean isExcluded(Path path) {
+            if (excludes.isEmpty() && anchored.isEmpty()) {
+                return false;
+            }
+            Path name = path.getFileName();
+            Path relative = root.relativize(path);
+            for (PathMatcher exclude : excludes) {
+                if ((name != null && exclude.matches(name)) || exclude.matches(relative)) {
+                    return true;
+                }
+            }
+            for (PathMatcher exclude : anchored) {
+                if (exclude.matches(relative)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void visitFile(Path file, List<String> files) {
+            String filename = file.toString();
+            for (String extension : extensions) {
+                if (filename.endsWith(extension)) {
+                    filename = PathUtil.normalize(filename);
+                    if (filename.startsWith("./"))
+                        filename = filename.substring(2);
+                    files.add(filename);
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Collects matching files of a single directory and forks tasks for its subdirectories
+         */
+        private class DirectoryTask extends RecursiveTask<List<String>> {
+
+            private static final long serialVersionUID = 1L;
+
+            private final Path dir;
+
+            DirectoryTask(Path dir) {
+                this.dir = dir;
+            }
+
+            @Override
+            protected List<String> compute() {
+                List<String> files = new ArrayList<>();
+                List<DirectoryTask> subdirs = new ArrayList<>();
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    for (Path entry : entries) {
+                        if (isExcluded(entry)) {
+                            continue;
+                        }
+                        // symbolic links are not followed, the same way Files.walkFileTree does by default
+                        BasicFileAttributes attrs = Files.readAttributes(entry,
+                                BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        if (attrs.isDirectory()) {
+                            subdirs.add(new DirectoryTask(entry));
+                        } else {
+                            visitFile(entry, files);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                invokeAll(subdirs);
+                for (DirectoryTask subdir : subdirs) {
+                    files.addAll(subdir.join());
+                }
+                return files;
+            }
+        }
+    }
 }
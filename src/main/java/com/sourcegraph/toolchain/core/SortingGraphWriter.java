@@ -0,0 +1,437 @@
+package com.sourcegraph.toolchain.core;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Implementation of graph writer that produces deduplicated definitions sorted by path and deduplicated references
+ * sorted by file and position using bounded memory. Definitions and references are collected in memory until
+ * the buffer is full, then sorted and spilled to temporary files as runs. Runs are merged when writer is closed.
+ * Output has the same structure as GraphData's one and does not depend on the buffer size. Of definitions with
+ * the same key the first one written wins, the same way as in GraphData
+ */
+public class SortingGraphWriter implements GraphWriter, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortingGraphWriter.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Maximum number of runs merged at once, keeps number of open files bounded
+     */
+    private static final int MAX_MERGE_WIDTH = 64;
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private static final Comparator<Def> DEF_ORDER = Comparator.
+            comparing((Def def) -> def.defKey.getPath(), NULLS_FIRST).
+            thenComparing(def -> origin(def.defKey), NULLS_FIRST);
+
+    private static final Comparator<Ref> REF_ORDER = Comparator.
+            comparing((Ref ref) -> ref.file, NULLS_FIRST).
+            thenComparingInt(ref -> ref.start).
+            thenComparingInt(ref -> ref.end).
+            thenComparing(ref -> ref.defKey.getPath(), NULLS_FIRST).
+            thenComparing(ref -> origin(ref.defKey), NULLS_FIRST).
+            thenComparing(ref -> ref.defRepo, NULLS_FIRST).
+            thenComparing(ref -> ref.defUnitType, NULLS_FIRST).
+            thenComparing(ref -> ref.defUnit, NULLS_FIRST).
+            thenComparing(ref -> ref.def);
+
+    private final Gson gson;
+
+    private final JsonWriter out;
+
+    private final int maxBuffered;
+
+    private final List<Def> defs = new ArrayList<>();
+    private final List<Ref> refs = new ArrayList<>();
+
+    private final List<File> defRuns = new ArrayList<>();
+    private final List<File> refRuns = new ArrayList<>();
+
+    /**
+     * @param out stream to write JSON to
+     * @param compact produce minified JSON if true, pretty-printed JSON otherwise
+     * @param maxBuffered number of definitions and references to keep in memory before spilling them to disk
+     */
+    public SortingGraphWriter(OutputStream out, boolean compact, int maxBuffered) {
+        this.gson = JSONUtil.gson();
+        this.out = JSONUtil.newJsonWriter(out, compact);
+        this.maxBuffered = Math.max(1, maxBuffered);
+    }
+
+    @Override
+    public void writeRef(Ref r) throws IOException {
+        refs.add(r);
+        if (defs.size() + refs.size() >= maxBuffered) {
+            spill();
+        }
+    }
+
+    @Override
+    public void writeDef(Def s) throws IOException {
+        defs.add(s);
+        if (defs.size() + refs.size() >= maxBuffered) {
+            spill();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    /**
+     * Merges spilled runs with buffered definitions and references and writes JSON document.
+     * No definitions or references can be written after
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        // sort is stable, so buffered items written earlier stay first among equal ones
+        defs.sort(DEF_ORDER);
+        refs.sort(REF_ORDER);
+        if (!defRuns.isEmpty() || !refRuns.isEmpty()) {
+            LOGGER.debug("Merging {} definition and {} reference runs", defRuns.size(), refRuns.size());
+        }
+        try {
+            reduce(defRuns, "srclib-php-defs", DEF_ORDER, SortingGraphWriter::readDef, SortingGraphWriter::writeDef,
+                    SortingGraphWriter::redefined);
+            reduce(refRuns, "srclib-php-refs", REF_ORDER, SortingGraphWriter::readRef, SortingGraphWriter::writeRef,
+                    null);
+            out.beginObject();
+            out.name("Defs").beginArray();
+            merge(sources(defRuns, SortingGraphWriter::readDef, defs),
+                    DEF_ORDER,
+                    def -> gson.toJson(def, Def.class, out),
+                    SortingGraphWriter::redefined);
+            out.endArray();
+            out.name("Refs").beginArray();
+            merge(sources(refRuns, SortingGraphWriter::readRef, refs),
+                    REF_ORDER,
+                    ref -> gson.toJson(ref, Ref.class, out),
+                    null);
+            out.endArray();
+            out.endObject();
+            out.flush();
+        } finally {
+            for (File run : defRuns) {
+                delete(run);
+            }
+            for (File run : refRuns) {
+                delete(run);
+            }
+        }
+    }
+
+    /**
+     * Sorts buffered definitions and references and writes them to new runs
+     */
+    private void spill() throws IOException {
+        if (!defs.isEmpty()) {
+            defs.sort(DEF_ORDER);
+            defRuns.add(writeRun("srclib-php-defs", defs, SortingGraphWriter::writeDef));
+            defs.clear();
+        }
+        if (!refs.isEmpty()) {
+            refs.sort(REF_ORDER);
+            refRuns.add(writeRun("srclib-php-refs", refs, SortingGraphWriter::writeRef));
+            refs.clear();
+        }
+    }
+
+    private static <T> File writeRun(String prefix, List<T> items, RecordWriter<T> writer) throws IOException {
+        File run = File.createTempFile(prefix, ".run");
+        run.deleteOnExit();
+        try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run),
+                BUFFER_SIZE))) {
+            for (T item : items) {
+                os.writeBoolean(true);
+                writer.write(item, os);
+            }
+            os.writeBoolean(false);
+        }
+        return run;
+    }
+
+    /**
+     * Merges groups of adjacent runs until there are few enough of them to be merged at once. Adjacent runs
+     * are merged to keep items written earlier first among equal ones
+     */
+    private static <T> void reduce(List<File> runs,
+                                   String prefix,
+                                   Comparator<T> order,
+                                   RecordReader<T> reader,
+                                   RecordWriter<T> writer,
+                                   Duplicates<T> duplicates) throws IOException {
+        while (runs.size() >= MAX_MERGE_WIDTH) {
+            List<File> merged = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += MAX_MERGE_WIDTH) {
+                List<File> group = runs.subList(i, Math.min(i + MAX_MERGE_WIDTH, runs.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                File run = File.createTempFile(prefix, ".run");
+                run.deleteOnExit();
+                merged.add(run);
+                try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run),
+                        BUFFER_SIZE))) {
+                    merge(sources(group, reader, Collections.emptyList()), order, item -> {
+                        os.writeBoolean(true);
+                        writer.write(item, os);
+                    }, duplicates);
+                    os.writeBoolean(false);
+                }
+                for (File file : group) {
+                    delete(file);
+                }
+            }
+            runs.clear();
+            runs.addAll(merged);
+        }
+    }
+
+    /**
+     * @return sources to merge, runs in the order they were written followed by buffered items
+     */
+    private static <T> List<Source<T>> sources(List<File> runs, RecordReader<T> reader, List<T> buffered) {
+        List<Source<T>> ret = new ArrayList<>(runs.size() + 1);
+        for (File run : runs) {
+            ret.add(new RunSource<>(run, reader));
+        }
+        Iterator<T> iterator = buffered.iterator();
+        ret.add(() -> iterator.hasNext() ? iterator.next() : null);
+        return ret;
+    }
+
+    /**
+     * Merges sorted sources writing each distinct item once and closes them. Of equal items the one from
+     * the source with the lowest index wins
+     */
+    private static <T> void merge(List<Source<T>> sources,
+                                  Comparator<T> order,
+                                  Sink<T> sink,
+                                  Duplicates<T> duplicates) throws IOException {
+        try {
+            PriorityQueue<Head<T>> queue = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+                int c = order.compare(a.item, b.item);
+                return c != 0 ? c : Integer.compare(a.index, b.index);
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                Source<T> source = sources.get(i);
+                T item = source.next();
+                if (item != null) {
+                    queue.add(new Head<>(source, i, item));
+                }
+            }
+            T prev = null;
+            while (!queue.isEmpty()) {
+                Head<T> head = queue.poll();
+                if (prev == null || order.compare(prev, head.item) != 0) {
+                    sink.write(head.item);
+                    prev = head.item;
+                } else if (duplicates != null) {
+                    duplicates.found(prev, head.item);
+                }
+                head.item = head.source.next();
+                if (head.item != null) {
+                    queue.add(head);
+                }
+            }
+        } finally {
+            for (Source<T> source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    private static void redefined(Def prev, Def def) {
+        LOGGER.warn("{} already defined in {} at {}:{}, redefinition attempt in {} at {}:{}",
+                prev.defKey.getPath(),
+                prev.file,
+                prev.defStart,
+                prev.defEnd,
+                def.file,
+                def.defStart,
+                def.defEnd);
+    }
+
+    private static void writeDef(Def def, DataOutput os) throws IOException {
+        writeDefKey(def.defKey, os);
+        writeString(def.kind, os);
+        writeString(def.name, os);
+        writeString(def.file, os);
+        os.writeInt(def.defStart);
+        os.writeInt(def.defEnd);
+        os.writeBoolean(def.exported);
+        os.writeBoolean(def.local);
+        os.writeBoolean(def.test);
+    }
+
+    private static Def readDef(DataInput is) throws IOException {
+        Def def = new Def();
+        def.defKey = readDefKey(is);
+        def.kind = readString(is);
+        def.name = readString(is);
+        def.file = readString(is);
+        def.defStart = is.readInt();
+        def.defEnd = is.readInt();
+        def.exported = is.readBoolean();
+        def.local = is.readBoolean();
+        def.test = is.readBoolean();
+        return def;
+    }
+
+    private static void writeRef(Ref ref, DataOutput os) throws IOException {
+        writeDefKey(ref.defKey, os);
+        writeString(ref.defRepo, os);
+        writeString(ref.defUnitType, os);
+        writeString(ref.defUnit, os);
+        writeString(ref.file, os);
+        os.writeInt(ref.start);
+        os.writeInt(ref.end);
+        os.writeBoolean(ref.def);
+    }
+
+    private static Ref readRef(DataInput is) throws IOException {
+        Ref ref = new Ref();
+        ref.defKey = readDefKey(is);
+        ref.defRepo = readString(is);
+        ref.defUnitType = readString(is);
+        ref.defUnit = readString(is);
+        ref.file = readString(is);
+        ref.start = is.readInt();
+        ref.end = is.readInt();
+        ref.def = is.readBoolean();
+        return ref;
+    }
+
+    private static void writeDefKey(DefKey defKey, DataOutput os) throws IOException {
+        writeString(origin(defKey), os);
+        writeString(defKey.getPath(), os);
+    }
+
+    private static DefKey readDefKey(DataInput is) throws IOException {
+        String origin = readString(is);
+        return new DefKey(origin == null ? null : URI.create(origin), readString(is));
+    }
+
+    /**
+     * Writes nullable string, unlike writeUTF not limited in length
+     */
+    private static void writeString(String s, DataOutput os) throws IOException {
+        if (s == null) {
+            os.writeInt(-1);
+            return;
+        }
+        byte bytes[] = s.getBytes(StandardCharsets.UTF_8);
+        os.writeInt(bytes.length);
+        os.write(bytes);
+    }
+
+    private static String readString(DataInput is) throws IOException {
+        int length = is.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte bytes[] = new byte[length];
+        is.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String origin(DefKey defKey) {
+        return defKey.getOrigin() == null ? null : defKey.getOrigin().toString();
+    }
+
+    private static void delete(File file) {
+        if (!file.delete()) {
+            LOGGER.warn("Unable to delete {}", file);
+        }
+    }
+
+    /**
+     * Current item of a merged source
+     */
+    private static class Head<T> {
+
+        final Source<T> source;
+        final int index;
+        T item;
+
+        Head(Source<T> source, int index, T item) {
+            this.source = source;
+            this.index = index;
+            this.item = item;
+        }
+    }
+
+    private interface Source<T> extends Closeable {
+
+        /**
+         * @return next item or null if there are no more items
+         */
+        T next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Reads items from a run, opens run file on first access
+     */
+    private static class RunSource<T> implements Source<T> {
+
+        private final File run;
+        private final RecordReader<T> reader;
+        private DataInputStream is;
+
+        RunSource(File run, RecordReader<T> reader) {
+            this.run = run;
+            this.reader = reader;
+        }
+
+        @Override
+        public T next() throws IOException {
+            if (is == null) {
+                is = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+            }
+            return is.readBoolean() ? reader.read(is) : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (is != null) {
+                is.close();
+            }
+        }
+    }
+
+    private interface Sink<T> {
+
+        void write(T item) throws IOException;
+    }
+
+    private interface Duplicates<T> {
+
+        void found(T kept, T dropped);
+    }
+
+    private interface RecordWriter<T> {
+
+        void write(T item, DataOutput os) throws IOException;
+    }
+
+    private interface RecordReader<T> {
+
+        T read(DataInput is) throws IOException;
+    }
+}
@@ -0,0 +1,143 @@
+package com.sourcegraph.toolchain.core;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Implementation of graph writer that writes definitions and references as JSON as soon as they are produced
+ * instead of collecting them in memory. Definitions go to the output stream directly while references are spooled
+ * to a temporary file and appended to the output when writer is closed. Output has the same structure as
+ * GraphData's one. Definitions are deduplicated by their keys, references are written as is
+ */
+public class StreamingGraphWriter implements GraphWriter, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingGraphWriter.class);
+
+    private final Gson gson;
+
+    private final JsonWriter out;
+
+    private final File refsFile;
+    private final JsonWriter refs;
+
+    private final Set<DefKey> defKeys = new HashSet<>();
+
+    /**
+     * @param out stream to write JSON to
+     * @param compact produce minified JSON if true, pretty-printed JSON otherwise
+     * @throws IOException
+     */
+    public StreamingGraphWriter(OutputStream out, boolean compact) throws IOException {
+        this.gson = JSONUtil.gson();
+        this.out = JSONUtil.newJsonWriter(out, compact);
+        this.out.beginObject();
+        this.out.name("Defs");
+        this.out.beginArray();
+
+        refsFile = File.createTempFile("srclib-php-refs", ".json");
+        refsFile.deleteOnExit();
+        refs = new JsonWriter(Files.newBufferedWriter(refsFile.toPath(), StandardCharsets.UTF_8));
+        refs.beginArray();
+    }
+
+    @Override
+    public void writeRef(Ref r) throws IOException {
+        gson.toJson(r, Ref.class, refs);
+    }
+
+    @Override
+    public void writeDef(Def s) throws IOException {
+        if (!defKeys.add(s.defKey)) {
+            LOGGER.warn("{} already defined, redefinition attempt in {} at {}:{}",
+                    s.defKey.getPath(),
+                    s.file,
+                    s.defStart,
+                    s.defEnd);
+            return;
+        }
+        gson.toJson(s, Def.class, out);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes spooled references and completes JSON document. No definitions or references can be written after
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        out.endArray();
+        refs.endArray();
+        refs.close();
+
+        out.name("Refs");
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(refsFile.toPath(), StandardCharsets.UTF_8))) {
+            copy(reader, out);
+        } finally {
+            if (!refsFile.delete()) {
+                LOGGER.warn("Unable to delete {}", refsFile);
+            }
+        }
+        out.endObject();
+        out.flush();
+    }
+
+    /**
+     * Copies single JSON value from reader to writer without building intermediate tree
+     */
+    private static void copy(JsonReader in, JsonWriter out) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_ARRAY:
+                in.beginArray();
+                out.beginArray();
+                while (in.hasNext()) {
+                    copy(in, out);
+                }
+                in.endArray();
+                out.endArray();
+                break;
+            case BEGIN_OBJECT:
+                in.beginObject();
+                out.beginObject();
+                while (in.hasNext()) {
+                    out.name(in.nextName());
+                    copy(in, out);
+                }
+                in.endObject();
+                out.endObject();
+                break;
+            case STRING:
+                out.value(in.nextString());
+                break;
+            case NUMBER:
+                String number = in.nextString();
+                try {
+                    out.value(Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    out.value(Double.parseDouble(number));
+                }
+                break;
+            case BOOLEAN:
+                out.value(in.nextBoolean());
+                break;
+            case NULL:
+                in.nextNull();
+                out.nullValue();
+                break;
+            default:
+                throw new IOException("Unexpected JSON token " + in.peek());
+        }
+    }
+}
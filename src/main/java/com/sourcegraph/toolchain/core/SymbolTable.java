@@ -0,0 +1,61 @@
+package com.sourcegraph.toolchain.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns names and definition keys, so that the same symbol met many times across files
+ * is represented by a single string and a single DefKey instance. Safe to be used from multiple threads
+ */
+public class SymbolTable {
+
+    private final ConcurrentMap<String, String> names = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, DefKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * @param name name to intern
+     * @return canonical instance of a given name
+     */
+    public String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        String ret = names.putIfAbsent(name, name);
+        return ret == null ? name : ret;
+    }
+
+    /**
+     * @param path definition path
+     * @return canonical definition key of a given path, defined in the current source unit
+     */
+    public DefKey key(String path) {
+        DefKey ret = keys.get(path);
+        if (ret == null) {
+            DefKey key = new DefKey(null, intern(path));
+            ret = keys.putIfAbsent(path, key);
+            if (ret == null) {
+                ret = key;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param key definition key
+     * @return canonical instance of a given key, keys with origin are returned as is
+     */
+    public DefKey key(DefKey key) {
+        if (key == null || key.getOrigin() != null || key.getPath() == null) {
+            return key;
+        }
+        return key(key.getPath());
+    }
+
+    /**
+     * @return number of distinct definition keys
+     */
+    public int size() {
+        return keys.size();
+    }
+}
@@ -0,0 +1,14 @@
+package com.sourcegraph.toolchain.php;
+
+/**
+ * Signals that command failed and process should exit with non-zero status. Error is expected to be logged
+ * before throwing, so that commands may be run both from command line and by server without terminating JVM
+ */
+class CommandException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    CommandException() {
+        super(null, null, false, false);
+    }
+}
@@ -0,0 +1,72 @@
+package com.sourcegraph.toolchain.php;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Subset of composer.json package manifest
+ */
+class ComposerJson {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComposerJson.class);
+
+    static final String FILE_NAME = "composer.json";
+
+    private static final String DEFAULT_VENDOR_DIR = "vendor";
+
+    /**
+     * Package name, "vendor/project"
+     */
+    String name;
+
+    /**
+     * Package name => version constraint
+     */
+    Map<String, String> require;
+
+    /**
+     * Package name => version constraint, development only
+     */
+    @SerializedName("require-dev")
+    Map<String, String> requireDev;
+
+    Config config;
+
+    /**
+     * @return directory packages are installed to, relative to composer.json
+     */
+    String getVendorDir() {
+        if (config == null || StringUtils.isEmpty(config.vendorDir)) {
+            return DEFAULT_VENDOR_DIR;
+        }
+        return StringUtils.removeEnd(StringUtils.removeStart(config.vendorDir, "./"), "/");
+    }
+
+    /**
+     * @param file composer.json file to read
+     * @return parsed manifest or null if file cannot be read or parsed
+     */
+    static ComposerJson read(Path file) {
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(r, ComposerJson.class);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to read {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    static class Config {
+
+        @SerializedName("vendor-dir")
+        String vendorDir;
+    }
+}
@@ -0,0 +1,82 @@
+package com.sourcegraph.toolchain.php;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Subset of composer.lock, exact versions and sources of installed packages
+ */
+class ComposerLock {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComposerLock.class);
+
+    static final String FILE_NAME = "composer.lock";
+
+    List<Package> packages;
+
+    @SerializedName("packages-dev")
+    List<Package> packagesDev;
+
+    /**
+     * @param file composer.lock file to read
+     * @return parsed lock file or null if file cannot be read or parsed
+     */
+    static ComposerLock read(Path file) {
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(r, ComposerLock.class);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to read {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    static class Package {
+
+        String name;
+
+        String version;
+
+        Source source;
+
+        Autoload autoload;
+    }
+
+    static class Autoload {
+
+        /**
+         * Namespace prefix => directory or list of directories
+         */
+        @SerializedName("psr-4")
+        Map<String, Object> psr4;
+
+        @SerializedName("psr-0")
+        Map<String, Object> psr0;
+    }
+
+    static class Source {
+
+        /**
+         * SCM type, "git", "hg" etc.
+         */
+        String type;
+
+        /**
+         * SCM URI
+         */
+        String url;
+
+        /**
+         * Revision
+         */
+        String reference;
+    }
+}
@@ -0,0 +1,167 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.core.DepResolution;
+import com.sourcegraph.toolchain.core.RawDependency;
+import com.sourcegraph.toolchain.core.ResolvedTarget;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Composer utilities: turns composer.json and composer.lock into source unit dependencies and resolves them
+ */
+class ComposerUtil {
+
+    static final String SCOPE_REQUIRE = "require";
+    static final String SCOPE_REQUIRE_DEV = "require-dev";
+
+    static final String TYPE = "composer";
+
+    /**
+     * Collects packages required by composer.json in a given directory. Versions and repository URIs
+     * are taken from composer.lock if there is one. Platform requirements (php, extensions) are skipped
+     * @param dir package root directory
+     * @return list of dependencies, empty if there is no composer.json
+     */
+    static List<RawDependency> dependencies(Path dir) {
+        Path manifest = dir.resolve(ComposerJson.FILE_NAME);
+        if (!Files.isRegularFile(manifest)) {
+            return new ArrayList<>();
+        }
+        ComposerJson composerJson = ComposerJson.read(manifest);
+        if (composerJson == null) {
+            return new ArrayList<>();
+        }
+
+        // package name => locked package
+        Map<String, ComposerLock.Package> locked = new HashMap<>();
+        Path lockFile = dir.resolve(ComposerLock.FILE_NAME);
+        if (Files.isRegularFile(lockFile)) {
+            ComposerLock lock = ComposerLock.read(lockFile);
+            if (lock != null) {
+                for (List<ComposerLock.Package> packages : Arrays.asList(lock.packages, lock.packagesDev)) {
+                    if (packages == null) {
+                        continue;
+                    }
+                    for (ComposerLock.Package pkg : packages) {
+                        if (pkg.name != null) {
+                            locked.put(pkg.name.toLowerCase(), pkg);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<RawDependency> ret = new ArrayList<>();
+        addDependencies(composerJson.require, SCOPE_REQUIRE, manifest, locked, ret);
+        addDependencies(composerJson.requireDev, SCOPE_REQUIRE_DEV, manifest, locked, ret);
+        return ret;
+    }
+
+    /**
+     * Collects namespaces of installed packages from composer.lock in a given directory, so that references to
+     * vendored code may be attributed to packages' source units. Packages without known repository are skipped
+     * @param dir package root directory
+     * @return definition path prefix of namespace (lowercased, "Vendor/Project") => package's source unit,
+     * empty if there is no composer.lock
+     */
+    static Map<String, ResolvedTarget> namespaces(Path dir) {
+        Map<String, ResolvedTarget> ret = new HashMap<>();
+        Path lockFile = dir.resolve(ComposerLock.FILE_NAME);
+        if (!Files.isRegularFile(lockFile)) {
+            return ret;
+        }
+        ComposerLock lock = ComposerLock.read(lockFile);
+        if (lock == null) {
+            return ret;
+        }
+        for (List<ComposerLock.Package> packages : Arrays.asList(lock.packages, lock.packagesDev)) {
+            if (packages == null) {
+                continue;
+            }
+            for (ComposerLock.Package pkg : packages) {
+                if (pkg.name == null || pkg.autoload == null || pkg.source == null ||
+                        StringUtils.isEmpty(pkg.source.url)) {
+                    continue;
+                }
+                ResolvedTarget target = new ResolvedTarget();
+                target.ToRepoCloneURL = pkg.source.url;
+                target.ToUnit = pkg.name;
+                target.ToUnitType = "PHP";
+                target.ToVersionString = pkg.version;
+                for (Map<String, Object> prefixes : Arrays.asList(pkg.autoload.psr4, pkg.autoload.psr0)) {
+                    if (prefixes == null) {
+                        continue;
+                    }
+                    for (String prefix : prefixes.keySet()) {
+                        String path = StringUtils.strip(prefix, "\\").replace('\\', '/').toLowerCase();
+                        if (!path.isEmpty()) {
+                            // the first package that claims namespace wins
+                            ret.putIfAbsent(path, target);
+                        }
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Resolves dependency to the source unit of a required package. Unit name is a package name,
+     * the one that scan command with "--split composer" gives to package's unit
+     * @param dependency dependency to resolve
+     * @return resolution, with error set if dependency's repository is unknown
+     */
+    static DepResolution resolve(RawDependency dependency) {
+        if (StringUtils.isEmpty(dependency.repoURI)) {
+            return new DepResolution(dependency,
+                    null,
+                    "Unable to resolve " + name(dependency) + ": package is not locked in " + ComposerLock.FILE_NAME);
+        }
+        ResolvedTarget target = new ResolvedTarget();
+        target.ToRepoCloneURL = dependency.repoURI;
+        target.ToUnit = name(dependency);
+        target.ToUnitType = "PHP";
+        target.ToVersionString = dependency.version;
+        return new DepResolution(dependency, target, null);
+    }
+
+    private static void addDependencies(Map<String, String> requirements,
+                                        String scope,
+                                        Path manifest,
+                                        Map<String, ComposerLock.Package> locked,
+                                        List<RawDependency> dependencies) {
+        if (requirements == null) {
+            return;
+        }
+        for (Map.Entry<String, String> requirement : requirements.entrySet()) {
+            String name = requirement.getKey();
+            int pos = name.indexOf('/');
+            if (pos < 0) {
+                // php, hhvm, ext-*, lib-*
+                continue;
+            }
+            String version = requirement.getValue();
+            ComposerLock.Package pkg = locked.get(name.toLowerCase());
+            if (pkg != null && pkg.version != null) {
+                version = pkg.version;
+            }
+            RawDependency dependency = new RawDependency(name.substring(0, pos),
+                    name.substring(pos + 1),
+                    version,
+                    scope,
+                    manifest.toString());
+            dependency.type = TYPE;
+            if (pkg != null && pkg.source != null) {
+                dependency.repoURI = pkg.source.url;
+            }
+            dependencies.add(dependency);
+        }
+    }
+
+    private static String name(RawDependency dependency) {
+        return dependency.groupID + '/' + dependency.artifactID;
+    }
+}
@@ -1,11 +1,22 @@
 package com.sourcegraph.toolchain.php;
 
 import com.beust.jcommander.Parameter;
+import com.google.gson.Gson;
+import com.sourcegraph.toolchain.core.DepResolution;
 import com.sourcegraph.toolchain.core.JSONUtil;
+import com.sourcegraph.toolchain.core.SourceUnit;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class DepresolveCommand {
 
@@ -18,7 +29,30 @@ public class DepresolveCommand {
      * Main method
      */
     public void Execute() {
-        JSONUtil.writeJSON(Collections.emptyList());
+        SourceUnit unit = null;
+        try {
+            Reader r;
+            if (!StringUtils.isEmpty(debugUnitFile)) {
+                LOGGER.debug("Reading source unit JSON data from {}", debugUnitFile);
+                r = Files.newBufferedReader(FileSystems.getDefault().getPath(debugUnitFile));
+            } else {
+                r = new InputStreamReader(System.in);
+            }
+            unit = new Gson().fromJson(r, SourceUnit.class);
+            r.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to read source unit data", e);
+            throw new CommandException();
+        }
+        LOGGER.info("Resolving dependencies of {}", unit.Name);
+
+        if (unit.Dependencies == null) {
+            unit.Dependencies = Collections.emptyList();
+        }
+        List<DepResolution> resolutions = unit.Dependencies.stream().
+                map(ComposerUtil::resolve).
+                collect(Collectors.toList());
+        JSONUtil.writeJSON(resolutions);
     }
 
 }
@@ -0,0 +1,195 @@
+package com.sourcegraph.toolchain.php;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * Per-file limits on size, number of tokens and wall-clock time of graphing. File that exceeds any of them
+ * is not parsed (or its parsing is cancelled) and only its declarations are extracted by lexer, within the same
+ * time limit.
+ * Zero means no limit
+ */
+class FileBudget {
+
+    /**
+     * Limit that file exceeded
+     */
+    enum Limit {
+        SIZE,
+        TOKENS,
+        TIME
+    }
+
+    static final FileBudget UNLIMITED = new FileBudget(0, 0, 0);
+
+    /**
+     * Token stream checks deadline once per this number of consumed tokens
+     */
+    private static final int CHECK_INTERVAL = 1 << 12;
+
+    /**
+     * Maximum file size in decoded characters
+     */
+    final long maxSize;
+
+    final int maxTokens;
+
+    final long maxNanos;
+
+    /**
+     * @param maxSize maximum file size in decoded characters
+     * @param maxTokens maximum number of tokens, including hidden ones
+     * @param maxNanos maximum time to read, lex and parse file
+     */
+    FileBudget(long maxSize, int maxTokens, long maxNanos) {
+        this.maxSize = maxSize;
+        this.maxTokens = maxTokens;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @param size file size in decoded characters
+     * @throws ExceededException if file is too large
+     */
+    void checkSize(long size) {
+        if (maxSize > 0 && size > maxSize) {
+            throw new ExceededException(Limit.SIZE);
+        }
+    }
+
+    /**
+     * @param source lexer
+     * @param start time file processing started at, as returned by System.nanoTime()
+     * @return token stream that throws ExceededException when it gets too many tokens from lexer or when time
+     * is over. Both lexer and parser pull tokens through the stream, so they are cancelled by it
+     */
+    CommonTokenStream newTokenStream(TokenSource source, long start) {
+        if (maxTokens <= 0 && maxNanos <= 0) {
+            return new CommonTokenStream(source);
+        }
+        return new BudgetTokenStream(source, start);
+    }
+
+    /**
+     * @param source lexer
+     * @param start time declaration scan started at, as returned by System.nanoTime()
+     * @return token source that ends early, as if end of file was reached, when time is over. Used to extract
+     * declarations of a file that exceeded its budget, so that the fallback is bounded too
+     */
+    TokenSource newFallbackSource(TokenSource source, long start) {
+        if (maxNanos <= 0) {
+            return source;
+        }
+        return new DeadlineTokenSource(source, start + maxNanos);
+    }
+
+    /**
+     * Thrown from inside of lexer or parser to cancel processing of a file
+     */
+    static class ExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final Limit limit;
+
+        ExceededException(Limit limit) {
+            super(limit.name(), null, false, false);
+            this.limit = limit;
+        }
+    }
+
+    private class BudgetTokenStream extends CommonTokenStream {
+
+        private final long deadline;
+
+        private int consumed;
+
+        BudgetTokenStream(TokenSource source, long start) {
+            super(source);
+            deadline = maxNanos > 0 ? start + maxNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        protected int fetch(int n) {
+            int fetched = super.fetch(n);
+            if (maxTokens > 0 && tokens.size() > maxTokens) {
+                throw new ExceededException(Limit.TOKENS);
+            }
+            checkTime();
+            return fetched;
+        }
+
+        @Override
+        public void consume() {
+            super.consume();
+            // prediction and error recovery move through tokens with consume() too
+            if (++consumed % CHECK_INTERVAL == 0) {
+                checkTime();
+            }
+        }
+
+        private void checkTime() {
+            if (System.nanoTime() > deadline) {
+                throw new ExceededException(Limit.TIME);
+            }
+        }
+    }
+
+    private static class DeadlineTokenSource implements TokenSource {
+
+        private final TokenSource source;
+
+        private final long deadline;
+
+        private int fetched;
+
+        private boolean over;
+
+        DeadlineTokenSource(TokenSource source, long deadline) {
+            this.source = source;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Token nextToken() {
+            if (!over && ++fetched % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                over = true;
+            }
+            return over ? new CommonToken(Token.EOF) : source.nextToken();
+        }
+
+        @Override
+        public int getLine() {
+            return source.getLine();
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return source.getCharPositionInLine();
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return source.getInputStream();
+        }
+
+        @Override
+        public String getSourceName() {
+            return source.getSourceName();
+        }
+
+        @Override
+        public void setTokenFactory(TokenFactory<?> factory) {
+            source.setTokenFactory(factory);
+        }
+
+        @Override
+        public TokenFactory<?> getTokenFactory() {
+            return source.getTokenFactory();
+        }
+    }
+}
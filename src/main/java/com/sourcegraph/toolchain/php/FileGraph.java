@@ -0,0 +1,96 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.core.Def;
+import com.sourcegraph.toolchain.core.GraphWriter;
+import com.sourcegraph.toolchain.core.Ref;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Graph writer that buffers definitions and references produced for a single file. Files are graphed
+ * independently from each other (possibly in parallel) and then replayed into the real graph writer
+ * in the order given by include graph
+ */
+public class FileGraph implements GraphWriter {
+
+    /**
+     * Source file
+     */
+    final String file;
+
+    final List<Def> defs = new ArrayList<>();
+    final List<Ref> refs = new ArrayList<>();
+
+    /**
+     * Classes declared in file
+     */
+    final Map<String, ClassInfo> classes = new LinkedHashMap<>();
+
+    /**
+     * Symbol index lookups made while graphing file, lowercased name => declared name or empty string if symbol
+     * is not known. Graph of a file depends on other files through these lookups only
+     */
+    final Map<String, String> typeLookups = new HashMap<>();
+    final Map<String, String> functionLookups = new HashMap<>();
+
+    /**
+     * refs seen so far, used to drop duplicates while file is being graphed
+     */
+    private transient Set<Ref> seen = new HashSet<>();
+
+    public FileGraph(String file) {
+        this.file = file;
+    }
+
+    @Override
+    public void writeRef(Ref r) throws IOException {
+        if (seen.add(r)) {
+            refs.add(r);
+        }
+    }
+
+    @Override
+    public void writeDef(Def s) throws IOException {
+        defs.add(s);
+    }
+
+    @Override
+    public void flush() {
+        seen = null;
+    }
+
+    /**
+     * Tells if index lookups file made give the same results with a given index, that is if graph of unchanged
+     * file is still valid
+     * @param index current symbol index
+     * @return true if all lookups resolve to the same symbols
+     */
+    boolean resolvesSame(SymbolIndex index) {
+        for (Map.Entry<String, String> lookup : typeLookups.entrySet()) {
+            if (!lookup.getValue().equals(SymbolIndex.nameOf(index.getType(lookup.getKey())))) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, String> lookup : functionLookups.entrySet()) {
+            if (!lookup.getValue().equals(SymbolIndex.nameOf(index.getFunction(lookup.getKey())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes buffered definitions and references to the given writer
+     * @param writer target writer
+     * @throws IOException
+     */
+    void replay(GraphWriter writer) throws IOException {
+        for (Def def : defs) {
+            writer.writeDef(def);
+        }
+        for (Ref ref : refs) {
+            writer.writeRef(ref);
+        }
+    }
+}
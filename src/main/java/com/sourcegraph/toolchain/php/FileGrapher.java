@@ -1,50 +1,89 @@
 package com.sourcegraph.toolchain.php;
 
 import com.sourcegraph.toolchain.core.Def;
-import com.sourcegraph.toolchain.core.DefKey;
 import com.sourcegraph.toolchain.core.Ref;
+import com.sourcegraph.toolchain.core.SymbolTable;
 import com.sourcegraph.toolchain.php.antlr4.PHPParser;
 import com.sourcegraph.toolchain.php.antlr4.PHPParserBaseListener;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.tree.TerminalNode;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.BitSet;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.*;
 
 public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorListener {
 
     private static Logger LOGGER = LoggerFactory.getLogger(FileGrapher.class);
 
-    private static final Pattern INCLUDE_EXPRESSION = Pattern.compile("\\s*\\(?\\s*['\"]([^'\"]+)['\"]\\s*\\)?");
-
-    private PHPGraph graph;
+    private FileGraph graph;
 
     private String file;
 
+    /**
+     * Interns definition keys and names, may be shared between graphers
+     */
+    private final SymbolTable symbols;
+
+    /**
+     * Symbols declared anywhere in the graphed files
+     */
+    private final SymbolIndex index;
+
+    /**
+     * keeps file-level and function-level variables. At each level holds map
+     * variable name => is_local
+     */
+    private Stack<Map<String, Boolean>> vars = new Stack<>();
+
     private String blockName;
     private ClassInfo currentClassInfo;
 
-    public FileGrapher(PHPGraph graph, String file) {
+    /**
+     * Current namespace, empty for global one
+     */
+    private String namespace = StringUtils.EMPTY;
+
+    /**
+     * Import table of current namespace, lowercased alias => fully qualified class or namespace name
+     */
+    private Map<String, String> classImports = new HashMap<>();
+
+    /**
+     * Import table of current namespace, lowercased alias => fully qualified function name
+     */
+    private Map<String, String> functionImports = new HashMap<>();
+
+    public FileGrapher(FileGraph graph) {
+        this(graph, new SymbolTable(), new SymbolIndex());
+    }
+
+    public FileGrapher(FileGraph graph, SymbolTable symbols, SymbolIndex index) {
         this.graph = graph;
-        this.file = file;
+        this.file = graph.file;
+        this.symbols = symbols;
+        this.index = index;
 
-        graph.vars.push(new HashMap<>());
+        vars.push(new HashMap<>());
+    }
+
+    SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    SymbolIndex getIndex() {
+        return index;
     }
 
     protected Def def(ParserRuleContext ctx, String kind) {
         Def def = new Def();
         def.defStart = ctx.getStart().getStartIndex();
         def.defEnd = ctx.getStop().getStopIndex();
-        def.name = ctx.getText();
+        def.name = symbols.intern(ctx.getText());
         def.file = this.file;
         def.kind = kind;
         initDef(def);
@@ -55,7 +94,7 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
         Def def = new Def();
         def.defStart = token.getStartIndex();
         def.defEnd = token.getStopIndex();
-        def.name = token.getText();
+        def.name = symbols.intern(token.getText());
         def.file = this.file;
         def.kind = kind;
         initDef(def);
@@ -86,7 +125,7 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
 
     protected void emit(Def def) {
         try {
-            graph.writer.writeDef(def);
+            graph.writeDef(def);
         } catch (IOException e) {
             e.printStackTrace(); // TODO
         }
@@ -102,12 +141,44 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
 
     protected void emit(Ref ref) {
         try {
-            graph.writer.writeRef(ref);
+            graph.writeRef(ref);
         } catch (IOException e) {
             e.printStackTrace(); // TODO
         }
     }
 
+    /**
+     * Emits definition of a symbol found by lexer-only scan, used for files that were not parsed
+     * @param symbol class, interface, trait or function declared in this file
+     */
+    void declare(SymbolIndex.Symbol symbol) {
+        Def def = new Def();
+        def.defStart = symbol.start;
+        def.defEnd = symbol.end;
+        def.name = symbols.intern(symbol.getShortName());
+        def.file = this.file;
+        switch (symbol.kind) {
+            case FUNCTION:
+                def.kind = DefKind.FUNCTION;
+                break;
+            case INTERFACE:
+                def.kind = DefKind.INTERFACE;
+                break;
+            case TRAIT:
+                def.kind = DefKind.TRAIT;
+                break;
+            default:
+                def.kind = DefKind.CLASS;
+        }
+        initDef(def);
+        String path = path(symbol.name);
+        def.defKey = symbols.key(path);
+        if (symbol.kind != SymbolIndex.Kind.FUNCTION) {
+            this.graph.classes.put(path, new ClassInfo());
+        }
+        emit(def);
+    }
+
     @Override
     public void syntaxError(Recognizer<?, ?> recognizer,
                             Object offendingSymbol,
@@ -143,25 +214,14 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
     public void reportContextSensitivity(Parser parser, DFA dfa, int i, int i1, int i2, ATNConfigSet atnConfigSet) {
     }
 
-    /**
-     * Processing include../require.. statements, trying to process include files
-     */
-    @Override
-    public void enterPreprocessorExpression(PHPParser.PreprocessorExpressionContext ctx) {
-        String file = extractIncludeName(ctx.expression().getText());
-        if (file != null) {
-            this.graph.process(file, this.file);
-        }
-    }
-
     @Override
     public void enterFunctionDeclaration(PHPParser.FunctionDeclarationContext ctx) {
         Def fnDef = def(ctx.identifier(), DefKind.FUNCTION);
-        fnDef.defKey = new DefKey(null, fnDef.name);
+        fnDef.defKey = symbols.key(path(qualify(fnDef.name)));
         emit(fnDef);
 
-        graph.vars.push(new HashMap<>());
-        blockName = fnDef.name;
+        vars.push(new HashMap<>());
+        blockName = fnDef.defKey.getPath();
 
         // TODO (alexsaveliev): what is ctx.typeParameterListInBrackets()?
         List<PHPParser.FormalParameterContext> fnParams = ctx.formalParameterList().formalParameter();
@@ -171,23 +231,22 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
         for (PHPParser.FormalParameterContext fnParam : fnParams) {
             PHPParser.TypeHintContext typeHint = fnParam.typeHint();
             if (typeHint != null) {
-                ParserRuleContext qName = qName(typeHint.qualifiedStaticTypeRef());
+                PHPParser.QualifiedNamespaceNameContext qName = qName(typeHint.qualifiedStaticTypeRef());
                 if (qName != null) {
                     Ref typeRef = ref(qName);
-                    // TODO (alexsaveliev) namespace resolution - we should combine name with namespace prefix
-                    typeRef.defKey = new DefKey(null, qName.getText());
+                    typeRef.defKey = symbols.key(path(resolveClass(qName)));
                     emit(typeRef);
                 }
             }
             Def fnArgDef = def(fnParam.variableInitializer().VarName().getSymbol(), DefKind.ARGUMENT);
-            fnArgDef.defKey = new DefKey(null, fnDef.defKey.getPath() + '/' + fnArgDef.name);
+            fnArgDef.defKey = symbols.key(fnDef.defKey.getPath() + '/' + fnArgDef.name);
             emit(fnArgDef);
         }
     }
 
     @Override
     public void exitFunctionDeclaration(PHPParser.FunctionDeclarationContext ctx) {
-        graph.vars.pop();
+        vars.pop();
         blockName = null;
     }
 
@@ -197,7 +256,7 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
         PHPParser.QualifiedNamespaceNameContext qNameCtx = fnCallNameCtx.qualifiedNamespaceName();
         if (qNameCtx != null) {
             Ref fnRef = ref(qNameCtx);
-            fnRef.defKey = new DefKey(null, qNameCtx.getText());
+            fnRef.defKey = symbols.key(path(resolveFunction(qNameCtx)));
             emit(fnRef);
         }
         // TODO (alexsaveliev): FOO::BAR()
@@ -210,7 +269,7 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
             return;
         }
         String varName = varNameNode.getText();
-        Map<String, Boolean> localVars = graph.vars.peek();
+        Map<String, Boolean> localVars = vars.peek();
         Boolean local = localVars.get(varName);
         if (local == null) {
             // new variable
@@ -224,36 +283,36 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
                 varDef.exported = true;
                 local = false;
             }
-            varDef.defKey = new DefKey(null, blockName != null ? blockName + '/' + varName : varName);
+            varDef.defKey = symbols.key(blockName != null ? blockName + '/' + varName : varName);
             emit(varDef);
             localVars.put(varName, local);
         } else {
             Ref varRef = ref(varNameNode);
-            varRef.defKey = new DefKey(null, local ? blockName + '/' + varName : varName);
+            varRef.defKey = symbols.key(local ? blockName + '/' + varName : varName);
             emit(varRef);
         }
     }
 
     @Override
     public void enterGlobalStatement(PHPParser.GlobalStatementContext ctx) {
-        if (this.graph.vars.size() < 2) {
+        if (vars.size() < 2) {
             return;
         }
-        List<PHPParser.GlobalVarContext> vars = ctx.globalVar();
-        if (vars == null) {
+        List<PHPParser.GlobalVarContext> globalVars = ctx.globalVar();
+        if (globalVars == null) {
             return;
         }
-        for (PHPParser.GlobalVarContext var : vars) {
+        for (PHPParser.GlobalVarContext var : globalVars) {
             TerminalNode varNameNode = var.VarName();
             if (varNameNode != null) {
                 String varName = varNameNode.getText();
-                if (!this.graph.vars.firstElement().containsKey(varName)) {
+                if (!vars.firstElement().containsKey(varName)) {
                     continue;
                 }
                 Ref globalVarRef = ref(varNameNode);
-                globalVarRef.defKey = new DefKey(null, varName);
+                globalVarRef.defKey = symbols.key(varName);
                 emit(globalVarRef);
-                this.graph.vars.peek().put(varName, false);
+                vars.peek().put(varName, false);
             }
         }
     }
@@ -261,13 +320,13 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
     @Override
     public void enterClassDeclaration(PHPParser.ClassDeclarationContext ctx) {
         TerminalNode interfaceNode = ctx.Interface();
-        blockName = ctx.identifier().getText();
+        blockName = path(qualify(ctx.identifier().getText()));
         currentClassInfo = new ClassInfo();
         this.graph.classes.put(blockName, currentClassInfo);
 
         if (interfaceNode != null) {
             Def interfaceDef = def(ctx.identifier(), DefKind.INTERFACE);
-            interfaceDef.defKey = new DefKey(null, interfaceDef.name);
+            interfaceDef.defKey = symbols.key(blockName);
             emit(interfaceDef);
 
             PHPParser.InterfaceListContext interfaces = ctx.interfaceList();
@@ -279,13 +338,13 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
                 return;
             }
             for (PHPParser.QualifiedStaticTypeRefContext i : iNames) {
-                ParserRuleContext qName = qName(i);
+                PHPParser.QualifiedNamespaceNameContext qName = qName(i);
                 if (qName == null) {
                     continue;
                 }
-                String extendsInterfaceName = qName.getText();
+                String extendsInterfaceName = path(resolveClass(qName));
                 Ref extendsInterfaceRef = ref(qName);
-                extendsInterfaceRef.defKey = new DefKey(null, extendsInterfaceName);
+                extendsInterfaceRef.defKey = symbols.key(extendsInterfaceName);
                 emit(extendsInterfaceRef);
                 currentClassInfo.extendsClasses.add(extendsInterfaceName);
             }
@@ -294,15 +353,15 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
             PHPParser.ClassEntryTypeContext classEntryTypeContext = ctx.classEntryType();
             Def classOrTraitDef = def(ctx.identifier(),
                     classEntryTypeContext.Trait() != null ? DefKind.TRAIT : DefKind.CLASS);
-            classOrTraitDef.defKey = new DefKey(null, classOrTraitDef.name);
+            classOrTraitDef.defKey = symbols.key(blockName);
             emit(classOrTraitDef);
 
             PHPParser.QualifiedStaticTypeRefContext extendsCtx = ctx.qualifiedStaticTypeRef();
-            ParserRuleContext qName = qName(extendsCtx);
+            PHPParser.QualifiedNamespaceNameContext qName = qName(extendsCtx);
             if (qName != null) {
-                String extendsName = qName.getText();
+                String extendsName = path(resolveClass(qName));
                 Ref extendsRef = ref(qName);
-                extendsRef.defKey = new DefKey(null, extendsName);
+                extendsRef.defKey = symbols.key(extendsName);
                 emit(extendsRef);
                 currentClassInfo.extendsClasses.add(extendsName);
             }
@@ -321,9 +380,9 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
                 if (qName == null) {
                     continue;
                 }
-                String implementsInterfaceName = qName.getText();
+                String implementsInterfaceName = path(resolveClass(qName));
                 Ref implementsInterfaceRef = ref(qName);
-                implementsInterfaceRef.defKey = new DefKey(null, implementsInterfaceName);
+                implementsInterfaceRef.defKey = symbols.key(implementsInterfaceName);
                 emit(implementsInterfaceRef);
                 currentClassInfo.implementsClasses.add(implementsInterfaceName);
             }
@@ -335,14 +394,151 @@ public class FileGrapher extends PHPParserBaseListener implements ANTLRErrorList
         blockName = null;
     }
 
-    private static String extractIncludeName(String expressionText) {
-        Matcher m = INCLUDE_EXPRESSION.matcher(expressionText);
-        if (m.matches()) {
-            return m.group(1);
+    @Override
+    public void enterNamespaceDeclaration(PHPParser.NamespaceDeclarationContext ctx) {
+        PHPParser.NamespaceNameListContext name = ctx.namespaceNameList();
+        namespace = name == null ? StringUtils.EMPTY : name.getText();
+        classImports.clear();
+        functionImports.clear();
+    }
+
+    @Override
+    public void exitNamespaceDeclaration(PHPParser.NamespaceDeclarationContext ctx) {
+        if (ctx.getToken(PHPParser.OpenCurlyBracket, 0) != null) {
+            // braced namespace ends here, unbraced one lasts until the next namespace declaration
+            namespace = StringUtils.EMPTY;
+            classImports.clear();
+            functionImports.clear();
+        }
+    }
+
+    @Override
+    public void enterUseDeclaration(PHPParser.UseDeclarationContext ctx) {
+        if (ctx.Const() != null) {
+            return;
+        }
+        Map<String, String> imports = ctx.Function() != null ? functionImports : classImports;
+        for (PHPParser.UseDeclarationContentContext content :
+                ctx.useDeclarationContentList().useDeclarationContent()) {
+            String name = content.namespaceNameList().getText();
+            String alias = content.identifier() != null ?
+                    content.identifier().getText() :
+                    name.substring(name.lastIndexOf('\\') + 1);
+            imports.put(alias.toLowerCase(), name);
+        }
+    }
+
+    /**
+     * Resolves class, interface or trait name according to current namespace and imports
+     * @param ctx name
+     * @return fully qualified name without leading backslash
+     */
+    private String resolveClass(PHPParser.QualifiedNamespaceNameContext ctx) {
+        String name = ctx.namespaceNameList().getText();
+        if (ctx.Namespace() != null) {
+            return canonicalClass(qualify(name));
+        }
+        if (ctx.getToken(PHPParser.NamespaceSeparator, 0) != null) {
+            return canonicalClass(name);
+        }
+        int pos = name.indexOf('\\');
+        String first = (pos < 0 ? name : name.substring(0, pos)).toLowerCase();
+        if (pos < 0 && (first.equals("self") || first.equals("static") || first.equals("parent"))) {
+            return name;
+        }
+        String imported = classImports.get(first);
+        if (imported != null) {
+            return canonicalClass(pos < 0 ? imported : imported + name.substring(pos));
+        }
+        return canonicalClass(qualify(name));
+    }
+
+    /**
+     * Resolves function name according to current namespace and imports. Unqualified name that is not
+     * imported refers to function of current namespace if there is one and to global function otherwise,
+     * the same way PHP resolves it at runtime
+     * @param ctx name
+     * @return fully qualified name without leading backslash
+     */
+    private String resolveFunction(PHPParser.QualifiedNamespaceNameContext ctx) {
+        String name = ctx.namespaceNameList().getText();
+        if (ctx.Namespace() != null) {
+            return canonicalFunction(qualify(name));
+        }
+        if (ctx.getToken(PHPParser.NamespaceSeparator, 0) != null) {
+            return canonicalFunction(name);
+        }
+        int pos = name.indexOf('\\');
+        if (pos >= 0) {
+            String imported = classImports.get(name.substring(0, pos).toLowerCase());
+            if (imported != null) {
+                return canonicalFunction(imported + name.substring(pos));
+            }
+            return canonicalFunction(qualify(name));
+        }
+        String imported = functionImports.get(name.toLowerCase());
+        if (imported != null) {
+            return canonicalFunction(imported);
+        }
+        if (!namespace.isEmpty()) {
+            SymbolIndex.Symbol local = getFunction(qualify(name));
+            if (local != null) {
+                return local.name;
+            }
         }
-        return null;
+        return canonicalFunction(name);
     }
-    private static ParserRuleContext qName(PHPParser.QualifiedStaticTypeRefContext ctx) {
+
+    /**
+     * @return name as it was declared if class is known, given name otherwise. PHP class names are
+     * case-insensitive, declared name is used to make all references produce the same definition key
+     */
+    private String canonicalClass(String name) {
+        SymbolIndex.Symbol symbol = getType(name);
+        return symbol == null ? name : symbol.name;
+    }
+
+    /**
+     * @return name as it was declared if function is known, given name otherwise
+     */
+    private String canonicalFunction(String name) {
+        SymbolIndex.Symbol symbol = getFunction(name);
+        return symbol == null ? name : symbol.name;
+    }
+
+    /**
+     * Looks class, interface or trait up in index, remembering the result in file graph
+     */
+    private SymbolIndex.Symbol getType(String name) {
+        SymbolIndex.Symbol symbol = index.getType(name);
+        graph.typeLookups.put(name.toLowerCase(), SymbolIndex.nameOf(symbol));
+        return symbol;
+    }
+
+    /**
+     * Looks function up in index, remembering the result in file graph
+     */
+    private SymbolIndex.Symbol getFunction(String name) {
+        SymbolIndex.Symbol symbol = index.getFunction(name);
+        graph.functionLookups.put(name.toLowerCase(), SymbolIndex.nameOf(symbol));
+        return symbol;
+    }
+
+    /**
+     * @return name qualified with current namespace
+     */
+    private String qualify(String name) {
+        return namespace.isEmpty() ? name : namespace + '\\' + name;
+    }
+
+    /**
+     * @return definition path of fully qualified name, namespace separators become path separators
+     */
+    private static String path(String name) {
+        return name.replace('\\', '/');
+    }
+
+    private static PHPParser.QualifiedNamespaceNameContext qName(PHPParser.QualifiedStaticTypeRefContext ctx) {
         if (ctx == null) {
             return null;
         }
@@ -0,0 +1,158 @@
+package com.sourcegraph.toolchain.php;
+
+import com.google.gson.Gson;
+import com.sourcegraph.toolchain.core.Def;
+import com.sourcegraph.toolchain.core.Ref;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of per-file graphs. Entries are keyed by toolchain version and file content hash, so unchanged
+ * files are not parsed again on subsequent runs. Entry also records symbol index lookups file made and is
+ * used only while they give the same results, so that changes in other files invalidate only the files
+ * that refer to changed symbols. Safe to be used from multiple threads
+ */
+public class GraphCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphCache.class);
+
+    /**
+     * Bump when format of cached entries or grapher output changes
+     */
+    private static final int FORMAT = 4;
+
+    private final Path dir;
+
+    private final String version;
+
+    private final Gson gson = new Gson();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param dir cache directory, created if does not exist
+     * @param version toolchain version, entries produced by other versions are ignored
+     * @throws IOException
+     */
+    public GraphCache(Path dir, String version) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.version = version;
+    }
+
+    /**
+     * Computes cache key of a given file
+     * @param file file to compute key for
+     * @return cache key
+     * @throws IOException if file cannot be read
+     */
+    String key(String file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        digest.update((FORMAT + ":" + version + ":" + file + ":").getBytes(StandardCharsets.UTF_8));
+        try (InputStream is = Files.newInputStream(new File(file).toPath())) {
+            byte buf[] = new byte[8192];
+            int read;
+            while ((read = is.read(buf)) > 0) {
+                digest.update(buf, 0, read);
+            }
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key cache key
+     * @param index current symbol index
+     * @return cached file graph or null if there is no entry for a given key or entry's symbol lookups
+     * resolve differently with a given index
+     */
+    FileGraph get(String key, SymbolIndex index) {
+        Path entry = entry(key);
+        if (!Files.isRegularFile(entry)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (Reader r = new InputStreamReader(new GZIPInputStream(Files.newInputStream(entry)),
+                StandardCharsets.UTF_8)) {
+            FileGraph fileGraph = gson.fromJson(r, FileGraph.class);
+            if (!fileGraph.resolvesSame(index)) {
+                misses.incrementAndGet();
+                return null;
+            }
+            // sharing single file name instance as freshly graphed files do
+            for (Def def : fileGraph.defs) {
+                def.file = fileGraph.file;
+            }
+            for (Ref ref : fileGraph.refs) {
+                ref.file = fileGraph.file;
+            }
+            hits.incrementAndGet();
+            return fileGraph;
+        } catch (Exception e) {
+            LOGGER.warn("Unable to read cache entry {}: {}", entry, e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores file graph
+     * @param key cache key
+     * @param fileGraph file graph to store
+     */
+    void put(String key, FileGraph fileGraph) {
+        Path entry = entry(key);
+        Path tmp = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            tmp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            try (Writer w = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)),
+                    StandardCharsets.UTF_8)) {
+                gson.toJson(fileGraph, w);
+            }
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write cache entry {}: {}", entry, e.getMessage());
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * @return number of files served from cache
+     */
+    int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of files that were not found in cache
+     */
+    int getMisses() {
+        return misses.get();
+    }
+
+    private Path entry(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".json.gz");
+    }
+}
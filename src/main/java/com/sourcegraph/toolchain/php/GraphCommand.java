@@ -2,27 +2,84 @@ package com.sourcegraph.toolchain.php;
 
 import com.beust.jcommander.Parameter;
 import com.google.gson.Gson;
+import com.sourcegraph.toolchain.core.BinaryGraphWriter;
+import com.sourcegraph.toolchain.core.Compression;
 import com.sourcegraph.toolchain.core.GraphData;
 import com.sourcegraph.toolchain.core.GraphWriter;
 import com.sourcegraph.toolchain.core.JSONUtil;
+import com.sourcegraph.toolchain.core.PathUtil;
+import com.sourcegraph.toolchain.core.SortingGraphWriter;
 import com.sourcegraph.toolchain.core.SourceUnit;
+import com.sourcegraph.toolchain.core.StreamingGraphWriter;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 public class GraphCommand {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphCommand.class);
 
+    private static final String FORMAT_JSON = "json";
+    private static final String FORMAT_BINARY = "binary";
+
     @Parameter(names = {"--debug-unit-file"}, description = "The path to a source unit input file, which will be read as though it came from stdin. Used to mimic stdin when you can't actually pipe to stdin (e.g., in IntelliJ run configurations).")
     String debugUnitFile;
 
+    @Parameter(names = {"--threads"}, description = "Number of threads to graph files with")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"--stream"}, description = "Write definitions and references as soon as they are produced instead of collecting them in memory")
+    boolean stream;
+
+    @Parameter(names = {"--sort"}, description = "Write definitions sorted by path and references sorted by file and position, both deduplicated, using bounded memory: sorted runs are spilled to temporary files and merged at the end")
+    boolean sort;
+
+    @Parameter(names = {"--sort-buffer"}, description = "Number of definitions and references to keep in memory before spilling them to disk when sorting")
+    int sortBuffer = 1000000;
+
+    @Parameter(names = {"--format"}, description = "Output format: json or binary (compact form with string table and delta-encoded offsets, BinaryGraphReader converts it back to JSON)")
+    String format = FORMAT_JSON;
+
+    @Parameter(names = {"--compress"}, description = "Compress output on the fly: none, gzip or deflate (zlib stream)")
+    String compress = "none";
+
+    @Parameter(names = {"--compact"}, arity = 1, description = "Produce minified JSON (true by default), use --compact false to get pretty-printed output")
+    boolean compact = true;
+
+    @Parameter(names = {"--cache-dir"}, description = "Directory to keep per-file graph cache in, files that did not change since previous run are not parsed again")
+    String cacheDir;
+
+    @Parameter(names = {"--warmup"}, description = "Warm up lexer and parser caches using bundled PHP source before graphing")
+    boolean warmup;
+
+    @Parameter(names = {"--prune-trees"}, description = "Walk each top-level statement as soon as it is parsed and discard its parse tree instead of building complete trees, reduces memory used by large files")
+    boolean pruneTrees;
+
+    @Parameter(names = {"--max-file-size"}, description = "Files larger than this number of characters are not parsed, only their top-level declarations are extracted by lexer (0 means no limit)")
+    long maxFileSize;
+
+    @Parameter(names = {"--max-file-tokens"}, description = "Files that have more tokens than this are not parsed, only their top-level declarations are extracted by lexer (0 means no limit)")
+    int maxFileTokens;
+
+    @Parameter(names = {"--max-file-time"}, description = "Milliseconds a file may be read, lexed and parsed for, parsing is cancelled when time is over and only top-level declarations are extracted by lexer (0 means no limit)")
+    long maxFileTime;
+
+    @Parameter(names = {"--metrics-out"}, description = "File to write per-phase timings, throughput and slowest files to, as JSON")
+    String metricsOut;
+
+    @Parameter(names = {"--metrics-slowest"}, description = "Number of slowest files to include into metrics")
+    int metricsSlowest = 10;
+
     /**
      * The Source Unit that is read in from STDIN. Defined here, so that it can be
      * accessed within the anonymous classes below.
@@ -35,6 +92,22 @@ public class GraphCommand {
     @SuppressWarnings("unchecked")
     public void Execute() {
 
+        if (!FORMAT_JSON.equals(format) && !FORMAT_BINARY.equals(format)) {
+            LOGGER.error("Unsupported output format {}", format);
+            throw new CommandException();
+        }
+        if (FORMAT_BINARY.equals(format) && (stream || sort)) {
+            LOGGER.error("Binary output format cannot be combined with --stream or --sort");
+            throw new CommandException();
+        }
+        Compression compression;
+        try {
+            compression = Compression.valueOf(compress.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Unsupported compression {}", compress);
+            throw new CommandException();
+        }
+
         try {
             Reader r;
             if (!StringUtils.isEmpty(debugUnitFile)) {
@@ -47,23 +120,59 @@ public class GraphCommand {
             r.close();
         } catch (IOException e) {
             LOGGER.error("Failed to read source unit data", e);
-            System.exit(1);
+            throw new CommandException();
         }
         LOGGER.info("Building graph for {}", unit.Name);
 
-        GraphWriter writer = new GraphData();
+        GraphWriter writer = null;
+        PHPGraph graph = null;
 
         try {
+            OutputStream out = compression.wrap(System.out);
+            if (FORMAT_BINARY.equals(format)) {
+                writer = new BinaryGraphWriter(out);
+            } else if (sort) {
+                writer = new SortingGraphWriter(out, compact, sortBuffer);
+            } else if (stream) {
+                writer = new StreamingGraphWriter(out, compact);
+            } else {
+                writer = new GraphData();
+            }
+            if (warmup) {
+                PHPGraph.warmup();
+            }
             LOGGER.debug("Starting graph collection");
-            PHPGraph graph = new PHPGraph(writer);
+            graph = new PHPGraph(writer, threads);
+            graph.setPruneTrees(pruneTrees);
+            if (unit.Dir != null) {
+                graph.setDependencies(ComposerUtil.namespaces(PathUtil.CWD.resolve(unit.Dir)));
+            }
+            graph.setBudget(new FileBudget(maxFileSize, maxFileTokens, TimeUnit.MILLISECONDS.toNanos(maxFileTime)));
+            if (!StringUtils.isEmpty(cacheDir)) {
+                graph.setCache(new GraphCache(Paths.get(cacheDir), Main.getVersion()));
+            }
             graph.process(unit.Files);
             LOGGER.debug("Graph collection complete");
+            long start = System.nanoTime();
             writer.flush();
+            if (writer instanceof Closeable) {
+                ((Closeable) writer).close();
+                out.close();
+            } else {
+                JSONUtil.writeJSON(writer, compact, out);
+            }
+            graph.getMetrics().setOutputNanos(System.nanoTime() - start);
         } catch (Exception e) {
             LOGGER.error("Unexpected error occurred while building graph", e);
-            System.exit(1);
+            throw new CommandException();
         }
 
-        JSONUtil.writeJSON(writer);
+        if (!StringUtils.isEmpty(metricsOut)) {
+            try {
+                graph.getMetrics().write(Paths.get(metricsOut), metricsSlowest);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write metrics to {}: {}", metricsOut, e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,337 @@
+package com.sourcegraph.toolchain.php;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Collects per-file and per-phase timings and sizes of graph command. Per-file metrics may be added
+ * from multiple threads
+ */
+public class GraphMetrics {
+
+    private final Queue<FileMetrics> files = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Time spent building symbol index
+     */
+    long indexNanos;
+
+    /**
+     * Time spent waiting for parallel workers to finish files
+     */
+    long waitNanos;
+
+    /**
+     * Time spent writing definitions and references to graph writer
+     */
+    long writeNanos;
+
+    /**
+     * Time spent producing output after graph collection
+     */
+    long outputNanos;
+
+    /**
+     * Wall-clock time of graph collection
+     */
+    long graphNanos;
+
+    /**
+     * Include graph files were ordered by, if any
+     */
+    IncludeGraph includes;
+
+    void add(FileMetrics metrics) {
+        files.add(metrics);
+    }
+
+    /**
+     * @param outputNanos time spent producing output after graph collection
+     */
+    public void setOutputNanos(long outputNanos) {
+        this.outputNanos = outputNanos;
+    }
+
+    /**
+     * Builds report
+     * @param slowest number of slowest files to include
+     * @return metrics report
+     */
+    public Report report(int slowest) {
+        Report report = new Report();
+        long readNanos = 0;
+        long lexNanos = 0;
+        long parseNanos = 0;
+        long walkNanos = 0;
+        for (FileMetrics file : files) {
+            report.Files++;
+            if (file.cached) {
+                report.CachedFiles++;
+            }
+            if (file.llFallback) {
+                report.LLFallbacks++;
+            }
+            if (file.skipped) {
+                report.SkippedFiles++;
+                report.SkippedBytes += file.bytes;
+            }
+            if (file.degraded != null) {
+                report.Degraded.add(new DegradedFile(file));
+            }
+            report.Bytes += file.bytes;
+            report.Tokens += file.tokens;
+            report.Defs += file.defs;
+            report.Refs += file.refs;
+            readNanos += file.readNanos;
+            lexNanos += file.lexNanos;
+            parseNanos += file.parseNanos;
+            walkNanos += file.walkNanos;
+        }
+        report.Degraded.sort(Comparator.comparing(file -> file.File));
+        if (includes != null) {
+            report.Includes = new Includes(includes);
+        }
+        Phases phases = new Phases();
+        phases.Index = millis(indexNanos);
+        phases.Read = millis(readNanos);
+        phases.Lex = millis(lexNanos);
+        phases.Parse = millis(parseNanos);
+        phases.Walk = millis(walkNanos);
+        phases.Wait = millis(waitNanos);
+        phases.Write = millis(writeNanos);
+        phases.Output = millis(outputNanos);
+        report.PhasesMs = phases;
+        report.GraphMs = millis(graphNanos);
+
+        Throughput throughput = new Throughput();
+        double seconds = graphNanos / 1e9;
+        if (seconds > 0) {
+            throughput.BytesPerSec = report.Bytes / seconds;
+            throughput.TokensPerSec = report.Tokens / seconds;
+            throughput.DefsPerSec = report.Defs / seconds;
+            throughput.RefsPerSec = report.Refs / seconds;
+        }
+        report.Throughput = throughput;
+
+        report.Slowest = files.stream().
+                sorted(Comparator.comparingLong(FileMetrics::totalNanos).reversed().
+                        thenComparing(file -> file.file)).
+                limit(slowest).
+                map(FileReport::new).
+                collect(Collectors.toList());
+        return report;
+    }
+
+    /**
+     * Writes metrics report as JSON
+     * @param path file to write report to
+     * @param slowest number of slowest files to include
+     * @throws IOException
+     */
+    public void write(Path path, int slowest) throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            gson.toJson(report(slowest), w);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Metrics of a single file
+     */
+    static class FileMetrics {
+
+        final String file;
+
+        /**
+         * File size in bytes
+         */
+        long bytes;
+        int tokens;
+        int defs;
+        int refs;
+
+        /**
+         * File graph was taken from cache
+         */
+        boolean cached;
+
+        /**
+         * SLL prediction failed and file was re-parsed with full LL
+         */
+        boolean llFallback;
+
+        /**
+         * File has no PHP code and was not parsed
+         */
+        boolean skipped;
+
+        /**
+         * Limit that file exceeded, it was graphed by lexer only then. Null if file is within its budget
+         */
+        FileBudget.Limit degraded;
+
+        /**
+         * Time spent to load file or cache entry
+         */
+        long readNanos;
+        long lexNanos;
+        long parseNanos;
+        long walkNanos;
+
+        FileMetrics(String file) {
+            this.file = file;
+        }
+
+        long totalNanos() {
+            return readNanos + lexNanos + parseNanos + walkNanos;
+        }
+    }
+
+    /**
+     * Metrics report
+     */
+    public static class Report {
+        public int Files;
+        public int CachedFiles;
+        public int LLFallbacks;
+        public int SkippedFiles;
+        public long SkippedBytes;
+        /**
+         * Files that exceeded their limits, only their top-level declarations were extracted
+         */
+        public List<DegradedFile> Degraded = new ArrayList<>();
+        public Includes Includes;
+        public long Bytes;
+        public long Tokens;
+        public long Defs;
+        public long Refs;
+        /**
+         * Wall-clock time of graph collection
+         */
+        public double GraphMs;
+        /**
+         * Per-phase time, per-file phases are summed over all workers
+         */
+        public Phases PhasesMs;
+        /**
+         * Per-second rates, relative to wall-clock time of graph collection
+         */
+        public Throughput Throughput;
+        public List<FileReport> Slowest;
+    }
+
+    /**
+     * Per-phase time in milliseconds
+     */
+    public static class Phases {
+        public double Index;
+        public double Read;
+        public double Lex;
+        public double Parse;
+        public double Walk;
+        public double Wait;
+        public double Write;
+        public double Output;
+    }
+
+    public static class Throughput {
+        public double BytesPerSec;
+        public double TokensPerSec;
+        public double DefsPerSec;
+        public double RefsPerSec;
+    }
+
+    public static class FileReport {
+        public String File;
+        public long Bytes;
+        public int Tokens;
+        public int Defs;
+        public int Refs;
+        public boolean Cached;
+        public boolean LLFallback;
+        public boolean Skipped;
+        public FileBudget.Limit Degraded;
+        public double ReadMs;
+        public double LexMs;
+        public double ParseMs;
+        public double WalkMs;
+        public double TotalMs;
+
+        FileReport(FileMetrics metrics) {
+            File = metrics.file;
+            Bytes = metrics.bytes;
+            Tokens = metrics.tokens;
+            Defs = metrics.defs;
+            Refs = metrics.refs;
+            Cached = metrics.cached;
+            LLFallback = metrics.llFallback;
+            Skipped = metrics.skipped;
+            Degraded = metrics.degraded;
+            ReadMs = millis(metrics.readNanos);
+            LexMs = millis(metrics.lexNanos);
+            ParseMs = millis(metrics.parseNanos);
+            WalkMs = millis(metrics.walkNanos);
+            TotalMs = millis(metrics.totalNanos());
+        }
+    }
+
+    public static class DegradedFile {
+        public String File;
+        public FileBudget.Limit Limit;
+        public long Bytes;
+        public int Tokens;
+
+        DegradedFile(FileMetrics metrics) {
+            File = metrics.file;
+            Limit = metrics.degraded;
+            Bytes = metrics.bytes;
+            Tokens = metrics.tokens;
+        }
+    }
+
+    public static class Includes {
+        /**
+         * Number of include statements between files of source unit
+         */
+        public int Resolved;
+        /**
+         * Number of include statements that take computed file name
+         */
+        public int Dynamic;
+        public List<List<String>> Cycles;
+        public List<UnresolvedInclude> Unresolved = new ArrayList<>();
+
+        Includes(IncludeGraph graph) {
+            Resolved = graph.getEdgeCount();
+            Dynamic = graph.getDynamic();
+            Cycles = graph.getCycles();
+            for (IncludeGraph.Unresolved include : graph.getUnresolved()) {
+                Unresolved.add(new UnresolvedInclude(include));
+            }
+        }
+    }
+
+    public static class UnresolvedInclude {
+        public String File;
+        public String Include;
+
+        UnresolvedInclude(IncludeGraph.Unresolved include) {
+            File = include.file;
+            Include = include.include;
+        }
+    }
+}
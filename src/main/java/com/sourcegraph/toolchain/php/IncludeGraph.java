@@ -0,0 +1,160 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.core.PathUtil;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Graph of include and require statements between files of a source unit, built from lexer-only scan
+ * before files are graphed. Gives the order to write files in: included files go before files including them,
+ * so that definitions of included files are seen first, the same way PHP sees them. Include cycles are broken
+ * at the include that closes the cycle. Cycles, includes of files outside of source unit and includes of
+ * computed file names are kept to be reported
+ */
+class IncludeGraph {
+
+    /**
+     * Unit files in their original order
+     */
+    private final Set<String> files;
+
+    /**
+     * file => files of source unit it includes, in order of include statements
+     */
+    private final Map<String, List<String>> edges = new HashMap<>();
+
+    private final List<Unresolved> unresolved = new ArrayList<>();
+
+    private final List<List<String>> cycles = new ArrayList<>();
+
+    private int edgeCount;
+
+    private int dynamic;
+
+    /**
+     * @param files source unit files, relative to current working directory
+     */
+    IncludeGraph(Set<String> files) {
+        this.files = files;
+    }
+
+    /**
+     * Adds file's include statements. Include file names are resolved relative to including file's directory
+     * @param file including file
+     * @param declarations file's declarations and includes
+     */
+    void add(String file, SymbolIndex.Declarations declarations) {
+        dynamic += declarations.dynamicIncludes;
+        if (declarations.includes.isEmpty()) {
+            return;
+        }
+        List<String> targets = new ArrayList<>(declarations.includes.size());
+        for (String include : declarations.includes) {
+            String target = PathUtil.relativizeCwd(
+                    PathUtil.concat(new File(file).getParentFile(), include).getPath());
+            if (files.contains(target)) {
+                targets.add(target);
+            } else {
+                unresolved.add(new Unresolved(file, include));
+            }
+        }
+        edgeCount += targets.size();
+        edges.put(file, targets);
+    }
+
+    /**
+     * Orders files topologically by walking includes depth-first, starting from unit files in their original
+     * order, so that order is deterministic. Collects include cycles met on the way
+     * @return all unit files, each file after the files it includes unless they form a cycle
+     */
+    List<String> order() {
+        cycles.clear();
+        List<String> ret = new ArrayList<>(files.size());
+        Set<String> done = new HashSet<>();
+        // files being walked, with index of the next include to follow
+        List<String> path = new ArrayList<>();
+        Deque<Integer> positions = new ArrayDeque<>();
+        Set<String> onPath = new HashSet<>();
+        for (String root : files) {
+            if (done.contains(root)) {
+                continue;
+            }
+            path.add(root);
+            onPath.add(root);
+            positions.push(0);
+            while (!path.isEmpty()) {
+                String file = path.get(path.size() - 1);
+                List<String> targets = edges.getOrDefault(file, Collections.emptyList());
+                int position = positions.pop();
+                if (position == targets.size()) {
+                    path.remove(path.size() - 1);
+                    onPath.remove(file);
+                    done.add(file);
+                    ret.add(file);
+                    continue;
+                }
+                positions.push(position + 1);
+                String target = targets.get(position);
+                if (onPath.contains(target)) {
+                    cycles.add(new ArrayList<>(path.subList(path.lastIndexOf(target), path.size())));
+                } else if (!done.contains(target)) {
+                    path.add(target);
+                    onPath.add(target);
+                    positions.push(0);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return number of resolved include statements between unit files
+     */
+    int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return number of include statements that take computed file name
+     */
+    int getDynamic() {
+        return dynamic;
+    }
+
+    /**
+     * @return include statements whose files are not part of source unit
+     */
+    List<Unresolved> getUnresolved() {
+        return unresolved;
+    }
+
+    /**
+     * @return include cycles found by the last order() call, each cycle lists files in include order
+     * starting from the first file met
+     */
+    List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Include statement that refers to a file outside of source unit
+     */
+    static class Unresolved {
+
+        /**
+         * Including file
+         */
+        final String file;
+
+        /**
+         * Included file name as written in source code
+         */
+        final String include;
+
+        Unresolved(String file, String include) {
+            this.file = file;
+            this.include = include;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.sourcegraph.toolchain.php;
 
 import com.beust.jcommander.JCommander;
+import com.sourcegraph.toolchain.core.PathUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
@@ -14,7 +15,7 @@ public class Main {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
 
-    private static final String VERSION_ENTRY = "ObjectiveC-Version";
+    private static final String VERSION_ENTRY = "Javagraph-Version";
 
     public static void main(String[] args) throws IOException {
         String version = getVersion();
@@ -25,42 +26,74 @@ public class Main {
             LOGGER.debug("Command line arguments [{}]", StringUtils.join(args, ' '));
         }
 
+        String port = System.getenv(ServeCommand.PORT_ENV);
+        if (!StringUtils.isEmpty(port) && (args.length == 0 || !"serve".equals(args[0]))) {
+            Integer status = ServeClient.forward(port, args);
+            if (status != null) {
+                System.exit(status);
+            }
+        }
+
+        int status = execute(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Parses command line arguments and executes command
+     * @param args command line arguments
+     * @return exit status
+     */
+    static int execute(String[] args) {
         JCommander jc = new JCommander();
 
         // Add subcommands
         ScanCommand scan = new ScanCommand();
         GraphCommand graph = new GraphCommand();
         DepresolveCommand depresolve = new DepresolveCommand();
+        ServeCommand serve = new ServeCommand();
 
         jc.addCommand("scan", scan);
         jc.addCommand("graph", graph);
         jc.addCommand("depresolve", depresolve);
+        jc.addCommand("serve", serve);
 
         try {
             jc.parse(args);
         } catch (Exception e) {
             LOGGER.error("Unable to parse command line arguments", e);
-            System.exit(1);
+            return 1;
         }
 
-        switch (jc.getParsedCommand()) {
-            case "scan":
-                scan.Execute();
-                break;
-            case "graph":
-                graph.Execute();
-                break;
-            case "depresolve":
-                depresolve.Execute();
-                break;
-            default:
-                LOGGER.error("Unknown command {}", jc.getParsedCommand());
-                jc.usage();
-                System.exit(1);
+        try {
+            switch (jc.getParsedCommand()) {
+                case "scan":
+                    scan.Execute();
+                    break;
+                case "graph":
+                    graph.Execute();
+                    break;
+                case "depresolve":
+                    depresolve.Execute();
+                    break;
+                case "serve":
+                    serve.Execute();
+                    break;
+                default:
+                    LOGGER.error("Unknown command {}", jc.getParsedCommand());
+                    jc.usage();
+                    return 1;
+            }
+        } catch (CommandException e) {
+            return 1;
+        } finally {
+            PathUtil.clearCache();
         }
+        return 0;
     }
 
-    private static String getVersion() {
+    static String getVersion() {
         String version = "development";
         try {
             InputStream manifestInputStream = Main.class.getResourceAsStream("/META-INF/MANIFEST.MF");
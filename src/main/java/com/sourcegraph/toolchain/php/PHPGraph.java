@@ -1,83 +1,678 @@
 package com.sourcegraph.toolchain.php;
 
+import com.sourcegraph.toolchain.core.Def;
 import com.sourcegraph.toolchain.core.GraphWriter;
 import com.sourcegraph.toolchain.core.PathUtil;
+import com.sourcegraph.toolchain.core.Ref;
+import com.sourcegraph.toolchain.core.ResolvedTarget;
+import com.sourcegraph.toolchain.core.SymbolTable;
 import com.sourcegraph.toolchain.php.antlr4.PHPLexer;
 import com.sourcegraph.toolchain.php.antlr4.PHPParser;
-import org.antlr.v4.runtime.ANTLRFileStream;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PHPGraph {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PHPGraph.class);
 
-    GraphWriter writer;
-
     /**
-     * keeps global and function-level variables. At each level holds map
-     * variable name => is_local
+     * Bundled PHP source that covers most of grammar, used to warm up recognizers
      */
-    Stack<Map<String, Boolean>> vars = new Stack<>();
+    private static final String WARMUP_RESOURCE = "/warmup.php";
+
+    GraphWriter writer;
 
     Map<String, ClassInfo> classes = new HashMap<>();
 
-    private Set<String> visited = new HashSet<>();
+    /**
+     * Number of threads to graph files with
+     */
+    private int threads;
+
     private Set<String> files;
 
+    /**
+     * Include statements between files, built together with symbol index
+     */
+    private IncludeGraph includes;
+
+    /**
+     * file => pending graph task, used in parallel mode only. Task is removed once file is written
+     */
+    private Map<String, ForkJoinTask<FileGraph>> tasks;
+
+    /**
+     * Number of files per thread that may be graphed ahead of the file being written. Each graphed file holds
+     * its definitions and references until it's written, so files are not submitted all at once
+     */
+    private static final int PENDING_PER_THREAD = 4;
+
+    /**
+     * Number of parsed files
+     */
+    private AtomicInteger parsed = new AtomicInteger();
+
+    /**
+     * Number of files that SLL prediction failed to parse and that were re-parsed with full LL
+     */
+    private AtomicInteger llFallbacks = new AtomicInteger();
+
+    /**
+     * Number of files that were not parsed because they have no PHP code
+     */
+    private AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * Number of files that exceeded their budget and were graphed by lexer only
+     */
+    private AtomicInteger degraded = new AtomicInteger();
+
+    /**
+     * Per-file limits
+     */
+    private FileBudget budget = FileBudget.UNLIMITED;
+
+    /**
+     * Per-file graph cache, optional
+     */
+    private GraphCache cache;
+
+    /**
+     * Largest character buffer to keep for reuse, in chars
+     */
+    private static final int MAX_REUSABLE_BUFFER = 1024 * 1024;
+
+    /**
+     * Per-thread character buffers reused between files
+     */
+    private ThreadLocal<char[]> buffers = new ThreadLocal<>();
+
+    private GraphMetrics metrics = new GraphMetrics();
+
+    /**
+     * Definition keys and names shared by all files
+     */
+    private SymbolTable symbols = new SymbolTable();
+
+    /**
+     * Symbols declared in files being processed, built before files are graphed
+     */
+    private SymbolIndex index = new SymbolIndex();
+
+    /**
+     * Namespaces of vendored packages, lowercased definition path prefix => package's source unit
+     */
+    private Map<String, ResolvedTarget> dependencies = Collections.emptyMap();
+
+    /**
+     * Walk statements as soon as they are parsed instead of building complete parse trees
+     */
+    private boolean pruneTrees;
+
     public PHPGraph(GraphWriter writer) {
+        this(writer, 1);
+    }
+
+    /**
+     * @param writer graph writer
+     * @param threads number of threads to graph files with, files are graphed one by one if less than 2.
+     *                Output does not depend on number of threads
+     */
+    public PHPGraph(GraphWriter writer, int threads) {
         this.writer = writer;
+        this.threads = threads;
+    }
+
+    /**
+     * Pre-populates lexer and parser DFA caches by parsing bundled PHP source, so that the first graphed files
+     * do not pay for building them. Generated recognizers keep DFA and prediction context cache in static fields,
+     * thus they are shared by all files and threads in JVM. Only SLL prediction is warmed up, full LL results
+     * are not cached in DFA anyway
+     */
+    public static void warmup() {
+        long start = System.nanoTime();
+        try (InputStream is = PHPGraph.class.getResourceAsStream(WARMUP_RESOURCE)) {
+            if (is == null) {
+                LOGGER.warn("Unable to find {}, skipping warmup", WARMUP_RESOURCE);
+                return;
+            }
+            PHPLexer lexer = new PHPLexer(new ANTLRInputStream(IOUtils.toString(is, StandardCharsets.UTF_8)));
+            lexer.removeErrorListeners();
+            PHPParser parser = new PHPParser(new CommonTokenStream(lexer));
+            parser.removeErrorListeners();
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.htmlDocument();
+        } catch (Exception e) {
+            LOGGER.warn("Warmup failed", e);
+            return;
+        }
+        LOGGER.debug("Warmup completed in {} ms", (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * @param cache cache to take graphs of unchanged files from and to store new ones to, null to disable caching
+     */
+    public void setCache(GraphCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param dependencies namespaces of vendored packages, lowercased definition path prefix ("vendor/project")
+     *                     => package's source unit. References into these namespaces are attributed to packages
+     */
+    void setDependencies(Map<String, ResolvedTarget> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * @param budget per-file limits, files that exceed them are not parsed and only their top-level declarations
+     *               are extracted by lexer
+     */
+    void setBudget(FileBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @param pruneTrees if true, each top-level statement is walked as soon as it is parsed and then discarded,
+     *                   so that complete parse tree of a file is never held in memory. Token stream of a file
+     *                   is still kept in memory to be able to re-parse it with full LL prediction
+     */
+    public void setPruneTrees(boolean pruneTrees) {
+        this.pruneTrees = pruneTrees;
+    }
+
+    /**
+     * @return timings and sizes collected so far
+     */
+    public GraphMetrics getMetrics() {
+        return metrics;
     }
 
     public void process(Collection<String> files) {
-        this.files = new HashSet<>();
+        long start = System.nanoTime();
+        this.files = new LinkedHashSet<>();
         for (String file : files) {
             this.files.add(PathUtil.relativizeCwd(file));
         }
-        for (String file : files) {
-            process(file, null);
+        ForkJoinPool pool = null;
+        if (threads > 1) {
+            LOGGER.debug("Graphing files using {} threads", threads);
+            pool = new ForkJoinPool(threads);
+        }
+        try {
+            index(pool);
+            List<String> order = order();
+            if (pool != null) {
+                tasks = new HashMap<>();
+            }
+            // submitting in write order, so that files are ready roughly when they are needed,
+            // extraction of files does not depend on each other
+            Iterator<String> ahead = order.iterator();
+            for (String file : order) {
+                if (pool != null) {
+                    submit(pool, ahead);
+                }
+                process(file);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+                tasks = null;
+            }
+        }
+        metrics.graphNanos += System.nanoTime() - start;
+        LOGGER.debug("{} of {} parsed files required full LL prediction", llFallbacks.get(), parsed.get());
+        LOGGER.debug("{} files without PHP code were not parsed", skipped.get());
+        if (degraded.get() > 0) {
+            LOGGER.warn("{} files exceeded their limits and were graphed partially", degraded.get());
+        }
+        LOGGER.debug("{} distinct definition keys", symbols.size());
+        if (cache != null) {
+            LOGGER.debug("Graph cache hits: {}, misses: {}", cache.getHits(), cache.getMisses());
         }
     }
 
-    protected void process(String file, String from) {
-        if (from != null) {
-            file = PathUtil.concat(new File(from).getParentFile(), file).getPath();
+    /**
+     * Builds symbol index of all files, in parallel if pool is given
+     * @param pool pool to scan files with, may be null
+     */
+    private void index(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        includes = new IncludeGraph(files);
+        if (pool == null) {
+            for (String file : files) {
+                SymbolIndex.Declarations declarations = declarations(file);
+                index.add(declarations);
+                includes.add(file, declarations);
+            }
+        } else {
+            List<ForkJoinTask<SymbolIndex.Declarations>> scans = new ArrayList<>(files.size());
+            for (String file : files) {
+                scans.add(pool.submit(() -> declarations(file)));
+            }
+            // adding in file order to keep index independent of the number of threads
+            Iterator<String> file = files.iterator();
+            for (ForkJoinTask<SymbolIndex.Declarations> scan : scans) {
+                SymbolIndex.Declarations declarations = scan.join();
+                index.add(declarations);
+                includes.add(file.next(), declarations);
+            }
         }
-        file = PathUtil.relativizeCwd(file);
-        if (visited.contains(file)) {
-            return;
+        metrics.indexNanos = System.nanoTime() - start;
+        LOGGER.debug("Indexed {} symbols of {} files in {} ms",
+                index.size(),
+                files.size(),
+                metrics.indexNanos / 1000000);
+    }
+
+    /**
+     * Collects declarations of a single file with lexer only. Safe to be called from multiple threads
+     * @param file file to scan
+     * @return file declarations, empty if file cannot be read
+     */
+    private SymbolIndex.Declarations declarations(String file) {
+        try {
+            Utf8FileStream stream = new Utf8FileStream(file, buffers.get());
+            PHPLexer lexer = new PHPLexer(stream);
+            lexer.removeErrorListeners();
+            SymbolIndex.Declarations declarations = SymbolIndex.scan(lexer, file);
+            if (stream.getBuffer().length <= MAX_REUSABLE_BUFFER) {
+                buffers.set(stream.getBuffer());
+            }
+            return declarations;
+        } catch (Exception e) {
+            // reported when file is graphed
+            LOGGER.debug("Failed to index {}: {}", file, e.getMessage());
+            return new SymbolIndex.Declarations();
         }
-        if (!files.contains(file)) {
-            return;
+    }
+
+    /**
+     * Orders files so that included files are written before files including them and reports include
+     * cycles and includes that cannot be resolved
+     * @return files in the order to write them in
+     */
+    private List<String> order() {
+        List<String> order = includes.order();
+        for (List<String> cycle : includes.getCycles()) {
+            LOGGER.warn("Include cycle {}", cycle);
+        }
+        for (IncludeGraph.Unresolved include : includes.getUnresolved()) {
+            LOGGER.debug("Unable to resolve {} included from {}", include.include, include.file);
+        }
+        LOGGER.debug("{} includes between files, {} include cycles, {} unresolved and {} computed includes",
+                includes.getEdgeCount(),
+                includes.getCycles().size(),
+                includes.getUnresolved().size(),
+                includes.getDynamic());
+        metrics.includes = includes;
+        return order;
+    }
+
+    /**
+     * Submits next files to graph until there are enough pending ones
+     * @param pool pool to graph files with
+     * @param ahead files that were not submitted yet, in write order
+     */
+    private void submit(ForkJoinPool pool, Iterator<String> ahead) {
+        while (tasks.size() < threads * PENDING_PER_THREAD && ahead.hasNext()) {
+            String file = ahead.next();
+            tasks.put(file, pool.submit(() -> graph(file)));
+        }
+    }
+
+    /**
+     * Writes file's definitions and references
+     * @param file file to process
+     */
+    protected void process(String file) {
+        long start = System.nanoTime();
+        FileGraph fileGraph = tasks == null ? graph(file) : tasks.remove(file).join();
+        long ready = System.nanoTime();
+        if (tasks != null) {
+            metrics.waitNanos += ready - start;
+        }
+        classes.putAll(fileGraph.classes);
+        if (!dependencies.isEmpty()) {
+            attribute(fileGraph);
+        }
+        try {
+            fileGraph.replay(writer);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write graph of {}: {}", file, e.getMessage());
+        }
+        metrics.writeNanos += System.nanoTime() - ready;
+    }
+
+    /**
+     * Points references into namespaces of vendored packages to packages' source units. References to symbols
+     * declared in the unit itself, for example when vendor directory is graphed too, are left local
+     */
+    private void attribute(FileGraph fileGraph) {
+        for (Ref ref : fileGraph.refs) {
+            if (ref.def) {
+                continue;
+            }
+            String path = ref.defKey.getPath();
+            // looking for the longest namespace that contains referenced symbol, symbol names are longer
+            // than their namespace and are checked first
+            for (int pos = path.length(); pos > 0; pos = path.lastIndexOf('/', pos - 1)) {
+                String prefix = path.substring(0, pos);
+                if (isDeclared(prefix)) {
+                    break;
+                }
+                ResolvedTarget target = dependencies.get(prefix.toLowerCase());
+                if (target != null) {
+                    ref.setDefTarget(target);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param path definition path prefix
+     * @return true if unit declares class, interface, trait or function with a given path
+     */
+    private boolean isDeclared(String path) {
+        String name = path.replace('/', '\\');
+        return index.getType(name) != null || index.getFunction(name) != null;
+    }
+
+    /**
+     * Extracts definitions and references from a single file or takes them from cache if file
+     * did not change. Safe to be called from multiple threads
+     * @param file file to graph
+     * @return file's graph, possibly incomplete if file cannot be parsed
+     */
+    protected FileGraph graph(String file) {
+        GraphMetrics.FileMetrics fileMetrics = new GraphMetrics.FileMetrics(file);
+        FileGraph fileGraph = graph(file, fileMetrics);
+        fileMetrics.defs = fileGraph.defs.size();
+        fileMetrics.refs = fileGraph.refs.size();
+        metrics.add(fileMetrics);
+        return fileGraph;
+    }
+
+    private FileGraph graph(String file, GraphMetrics.FileMetrics fileMetrics) {
+        if (cache == null) {
+            return extract(file, fileMetrics);
+        }
+        long start = System.nanoTime();
+        String key;
+        try {
+            key = cache.key(file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to process {}: {}", file, e.getMessage());
+            return new FileGraph(file);
+        }
+        FileGraph fileGraph = cache.get(key, index);
+        if (fileGraph != null) {
+            LOGGER.debug("Using cached graph of {}", file);
+            fileMetrics.cached = true;
+            intern(fileGraph);
+            fileMetrics.readNanos = System.nanoTime() - start;
+            return fileGraph;
+        }
+        fileGraph = extract(file, fileMetrics);
+        if (fileMetrics.degraded == null) {
+            // degraded graph depends on limits and, for time limit, on machine load
+            cache.put(key, fileGraph);
+        }
+        return fileGraph;
+    }
+
+    /**
+     * Replaces definition keys and names of a file graph read from cache with their canonical instances
+     */
+    private void intern(FileGraph fileGraph) {
+        for (Def def : fileGraph.defs) {
+            def.defKey = symbols.key(def.defKey);
+            def.name = symbols.intern(def.name);
         }
+        for (Ref ref : fileGraph.refs) {
+            ref.defKey = symbols.key(ref.defKey);
+        }
+    }
+
+    /**
+     * Extracts definitions and references from a single file
+     * @param file file to graph
+     * @param fileMetrics metrics to record file's timings and sizes to
+     * @return file's graph, possibly incomplete if file cannot be parsed
+     */
+    protected FileGraph extract(String file, GraphMetrics.FileMetrics fileMetrics) {
         LOGGER.info("Processing {}", file);
-        visited.add(file);
+        FileGraph fileGraph = new FileGraph(file);
+        StatementWalker statementWalker = null;
         try {
-            FileGrapher extractor = new FileGrapher(this, file);
+            FileGrapher extractor = new FileGrapher(fileGraph, symbols, index);
 
-            CharStream stream = new ANTLRFileStream(file);
-            PHPLexer lexer = new PHPLexer(stream);
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(extractor);
+            long start = System.nanoTime();
+            Utf8FileStream stream = new Utf8FileStream(file, buffers.get());
+            long read = System.nanoTime();
+            fileMetrics.readNanos = read - start;
+            fileMetrics.bytes = stream.getByteSize();
 
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            PHPParser parser = new PHPParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(extractor);
-            PHPParser.HtmlDocumentContext tree = parser.htmlDocument(); // parse
-            ParseTreeWalker walker = new ParseTreeWalker(); // create standard walker
-            walker.walk(extractor, tree); // initiate walk of tree with listener
+            if (!hasOpenTag(stream)) {
+                // pure HTML, lexer would never leave HTML mode
+                skip(file, fileMetrics, stream);
+                fileGraph.flush();
+                return fileGraph;
+            }
+
+            CommonTokenStream tokens = null;
+            try {
+                budget.checkSize(stream.size());
+
+                PHPLexer lexer = new PHPLexer(stream);
+                lexer.removeErrorListeners();
+                lexer.addErrorListener(extractor);
+
+                tokens = budget.newTokenStream(lexer, start);
+                // lexing everything upfront to time lexer and parser separately
+                tokens.fill();
+                long lexed = System.nanoTime();
+                fileMetrics.lexNanos = lexed - read;
+                fileMetrics.tokens = tokens.size();
+
+                if (!hasCode(tokens)) {
+                    skip(file, fileMetrics, stream);
+                    fileGraph.flush();
+                    return fileGraph;
+                }
+
+                if (pruneTrees) {
+                    statementWalker = new StatementWalker(fileGraph, extractor);
+                    parse(tokens, extractor, fileMetrics, statementWalker);
+                    fileMetrics.walkNanos = statementWalker.walkNanos;
+                    fileMetrics.parseNanos = System.nanoTime() - lexed - statementWalker.walkNanos;
+                } else {
+                    PHPParser.HtmlDocumentContext tree = parse(tokens, extractor, fileMetrics, null);
+                    long walkStart = System.nanoTime();
+                    fileMetrics.parseNanos = walkStart - lexed;
+
+                    ParseTreeWalker walker = new ParseTreeWalker(); // create standard walker
+                    walker.walk(extractor, tree); // initiate walk of tree with listener
+                    fileMetrics.walkNanos = System.nanoTime() - walkStart;
+                }
+            } catch (FileBudget.ExceededException e) {
+                // time spent so far goes to the phase that was cancelled
+                List<Token> lexed = null;
+                if (fileMetrics.lexNanos == 0) {
+                    fileMetrics.lexNanos = System.nanoTime() - read;
+                    fileMetrics.tokens = tokens == null ? 0 : tokens.size();
+                } else {
+                    fileMetrics.parseNanos = System.nanoTime() - read - fileMetrics.lexNanos;
+                    lexed = tokens.getTokens();
+                }
+                statementWalker = null;
+                fileGraph = degrade(file, stream, lexed, e.limit, fileMetrics);
+            }
+            if (stream.getBuffer().length <= MAX_REUSABLE_BUFFER) {
+                buffers.set(stream.getBuffer());
+            }
         } catch (IOException e) {
             LOGGER.warn("Failed to process {}: {}", file, e.getMessage());
         } catch (Exception e) {
             LOGGER.error("Failed to process {} - unexpected error", file, e);
         }
+        if (statementWalker != null) {
+            fileGraph = statementWalker.getGraph();
+        }
+        fileGraph.flush();
+        return fileGraph;
+    }
+
+    /**
+     * Tells if file may contain PHP code, that is if it has any "<?" sequence which lexer treats as PHP open tag
+     * @param stream file's characters
+     * @return false if file is pure HTML (or plain text) and may be skipped without lexing
+     */
+    static boolean hasOpenTag(Utf8FileStream stream) {
+        char data[] = stream.getBuffer();
+        int last = stream.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (data[i] == '<' && data[i + 1] == '?') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells if lexed file has PHP tokens parser should be run for. Files that consist of HTML, comments and
+     * empty PHP blocks have nothing to graph.
+     * Lexer defines HTML tokens before PHP ones, so token types below PHPEnd are HTML tokens. Open tags are
+     * skipped by lexer, and close tag becomes a semicolon which does nothing on its own
+     * @param tokens lexed file
+     * @return false if file has no PHP statements
+     */
+    static boolean hasCode(CommonTokenStream tokens) {
+        for (Token token : tokens.getTokens()) {
+            int type = token.getType();
+            if (token.getChannel() == Token.DEFAULT_CHANNEL &&
+                    type >= PHPLexer.PHPEnd &&
+                    type != PHPLexer.SemiColon) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts definitions of classes, interfaces, traits and functions of a file that exceeded its budget,
+     * using lexer only. Tokens are reused if file was lexed completely, otherwise file is lexed again within
+     * a fresh time limit, and declarations found before it's over are kept
+     * @param file file to graph
+     * @param stream file's characters
+     * @param lexed all tokens of file if it was cancelled after lexing, null otherwise
+     * @param limit limit that file exceeded
+     * @param fileMetrics metrics to mark file as degraded in
+     * @return file's graph that contains top-level declarations only
+     */
+    private FileGraph degrade(String file,
+                              Utf8FileStream stream,
+                              List<Token> lexed,
+                              FileBudget.Limit limit,
+                              GraphMetrics.FileMetrics fileMetrics) {
+        LOGGER.warn("{} exceeds {} limit, extracting declarations only", file, limit.name().toLowerCase());
+        fileMetrics.degraded = limit;
+        degraded.incrementAndGet();
+        long start = System.nanoTime();
+        FileGraph fileGraph = new FileGraph(file);
+        FileGrapher extractor = new FileGrapher(fileGraph, symbols, index);
+        TokenSource tokens;
+        if (lexed != null) {
+            tokens = new ListTokenSource(lexed);
+        } else {
+            stream.reset();
+            PHPLexer lexer = new PHPLexer(stream);
+            lexer.removeErrorListeners();
+            tokens = budget.newFallbackSource(lexer, start);
+        }
+        for (SymbolIndex.Symbol symbol : SymbolIndex.scan(tokens, file).symbols) {
+            extractor.declare(symbol);
+        }
+        fileMetrics.lexNanos += System.nanoTime() - start;
+        return fileGraph;
+    }
+
+    /**
+     * Marks file as skipped without parsing and keeps its character buffer for reuse
+     */
+    private void skip(String file, GraphMetrics.FileMetrics fileMetrics, Utf8FileStream stream) {
+        LOGGER.debug("Skipping {}, it has no PHP code", file);
+        fileMetrics.skipped = true;
+        skipped.incrementAndGet();
+        if (stream.getBuffer().length <= MAX_REUSABLE_BUFFER) {
+            buffers.set(stream.getBuffer());
+        }
+    }
+
+    /**
+     * Parses token stream using two-stage strategy: first attempts fast SLL prediction that bails out
+     * on the first error and then, if SLL failed, re-parses tokens with full LL prediction and default error
+     * recovery. Syntax errors are reported to error listener only by the second stage
+     * @param tokens tokens to parse
+     * @param errorListener error listener
+     * @return parse tree
+     */
+    protected PHPParser.HtmlDocumentContext parse(CommonTokenStream tokens, ANTLRErrorListener errorListener) {
+        return parse(tokens, errorListener, null, null);
+    }
+
+    /**
+     * Parses token stream the same way as parse(tokens, errorListener) does
+     * @param tokens tokens to parse
+     * @param errorListener error listener
+     * @param fileMetrics metrics to mark if full LL prediction was needed, may be null
+     * @param statementWalker if not null, walks statements while they are parsed, parse tree is pruned then
+     * @return parse tree
+     */
+    protected PHPParser.HtmlDocumentContext parse(CommonTokenStream tokens,
+                                                  ANTLRErrorListener errorListener,
+                                                  GraphMetrics.FileMetrics fileMetrics,
+                                                  StatementWalker statementWalker) {
+        parsed.incrementAndGet();
+        PHPParser parser = new PHPParser(tokens);
+        parser.removeErrorListeners();
+        if (statementWalker != null) {
+            parser.addParseListener(statementWalker);
+        }
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            return parser.htmlDocument();
+        } catch (ParseCancellationException e) {
+            // either real syntax error or SLL is too weak for the input
+            llFallbacks.incrementAndGet();
+            if (fileMetrics != null) {
+                fileMetrics.llFallback = true;
+            }
+            if (statementWalker != null) {
+                // statements walked so far are about to be parsed and walked again
+                statementWalker.reset();
+            }
+        }
+        tokens.seek(0);
+        parser.reset();
+        parser.addErrorListener(errorListener);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return parser.htmlDocument();
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
@@ -21,11 +22,47 @@ public class ScanCommand {
     @Parameter(names = {"--subdir"}, description = "The path of the current directory (in which the scanner is run), relative to the root directory of the repository being scanned (this is typically the root, \".\", as it is most useful to scan the entire repository)")
     String subdir;
 
+    @Parameter(names = {"--exclude"}, description = "Glob pattern of files and directories to skip, matched against name or path relative to the current directory (only against the path if pattern starts with /), may be repeated. .git, .hg, .svn and node_modules are always skipped")
+    List<String> excludes = new ArrayList<>();
+
+    @Parameter(names = {"--threads"}, description = "Number of threads to scan directories with")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"--split"}, description = "How to partition repository into source units: none (single unit), composer (unit per composer.json package root) or dir (unit per top-level directory)")
+    String split = "none";
+
+    @Parameter(names = {"--max-unit-files"}, description = "Split source units having more files than this into parts, not limited by default")
+    int maxUnitFiles;
+
+    @Parameter(names = {"--max-unit-bytes"}, description = "Split source units having larger total size of files than this into parts, not limited by default")
+    long maxUnitBytes;
+
+    @Parameter(names = {"--compress"}, description = "Compress output on the fly: none, gzip or deflate (zlib stream)")
+    String compress = "none";
+
+    @Parameter(names = {"--include-vendor"}, description = "Scan composer's vendor directory too, it is skipped by default when composer.json is present and vendored packages are referenced as dependencies instead")
+    boolean includeVendor;
+
     /**
      * Main method
      */
     public void Execute() {
 
+        UnitSplitter.Mode mode;
+        try {
+            mode = UnitSplitter.Mode.valueOf(split.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Unsupported split mode {}", split);
+            throw new CommandException();
+        }
+        Compression compression;
+        try {
+            compression = Compression.valueOf(compress.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Unsupported compression {}", compress);
+            throw new CommandException();
+        }
+
         try {
             if (repoURI == null) {
                 repoURI = StringUtils.EMPTY;
@@ -34,18 +71,37 @@ public class ScanCommand {
                 subdir = ".";
             }
 
-            SourceUnit unit = new SourceUnit();
-            unit.Type = "PHP";
-            unit.Name = ".";
-            unit.Dir = subdir;
-            unit.Files = ScanUtil.scanFiles(PathUtil.CWD.toAbsolutePath().toString(), new String[] {".php"});
+            List<String> allExcludes = new ArrayList<>(ScanUtil.DEFAULT_EXCLUDES);
+            allExcludes.addAll(excludes);
+            if (!includeVendor) {
+                ComposerJson composerJson = null;
+                Path manifest = PathUtil.CWD.resolve(ComposerJson.FILE_NAME);
+                if (Files.isRegularFile(manifest)) {
+                    composerJson = ComposerJson.read(manifest);
+                }
+                if (composerJson != null) {
+                    LOGGER.debug("Skipping composer's vendor directory {}", composerJson.getVendorDir());
+                    // anchored, so that directories named the same way deeper in the tree are still scanned
+                    allExcludes.add("/" + composerJson.getVendorDir());
+                }
+            }
+            List<String> files = ScanUtil.scanFiles(PathUtil.CWD.toAbsolutePath().toString(),
+                    new String[] {".php"},
+                    allExcludes,
+                    threads);
 
-            Collection<SourceUnit> units = Collections.singleton(unit);
+            Collection<SourceUnit> units = new UnitSplitter(mode, maxUnitFiles, maxUnitBytes).
+                    split(files, subdir, allExcludes, threads);
+            LOGGER.debug("Found {} files in {} source units", files.size(), units.size());
+            for (SourceUnit unit : units) {
+                Path dir = unit.Dir.equals(subdir) ? PathUtil.CWD : PathUtil.CWD.resolve(unit.Dir);
+                unit.Dependencies = ComposerUtil.dependencies(dir);
+            }
             normalize(units);
-            JSONUtil.writeJSON(units);
+            JSONUtil.writeJSON(units, false, compression.wrap(System.out));
         } catch (Exception e) {
             LOGGER.error("Unexpected error occurred while collecting source units", e);
-            System.exit(1);
+            throw new CommandException();
         }
     }
 
@@ -56,11 +112,13 @@ public class ScanCommand {
     @SuppressWarnings("unchecked")
     private static void normalize(Collection<SourceUnit> units) {
 
-        Comparator<RawDependency> dependencyComparator = Comparator.comparing(dependency -> dependency.artifactID);
+        Comparator<String> nullsFirst = Comparator.nullsFirst(Comparator.naturalOrder());
+        Comparator<RawDependency> dependencyComparator = Comparator.comparing(dependency -> dependency.artifactID,
+                nullsFirst);
         dependencyComparator = dependencyComparator.
-                thenComparing(dependency -> dependency.groupID).
-                thenComparing(dependency -> dependency.version).
-                thenComparing(dependency -> dependency.scope).
+                thenComparing(dependency -> dependency.groupID, nullsFirst).
+                thenComparing(dependency -> dependency.version, nullsFirst).
+                thenComparing(dependency -> dependency.scope, nullsFirst).
                 thenComparing(dependency -> dependency.file == null ? StringUtils.EMPTY : dependency.file);
 
         for (SourceUnit unit : units) {
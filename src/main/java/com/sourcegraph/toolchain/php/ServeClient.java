@@ -0,0 +1,134 @@
+package com.sourcegraph.toolchain.php;
+
+import com.google.gson.Gson;
+import com.sourcegraph.toolchain.core.PathUtil;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Thin client that forwards command to server started by "serve" command, see {@link ServeCommand} for protocol
+ */
+class ServeClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServeClient.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Forwards command to server, copying standard input to server and server's output to standard output
+     * @param port server port
+     * @param args command line arguments
+     * @return command's exit status or null if server is not available or refused to execute command, in this
+     * case standard input is left intact and command should be executed locally
+     */
+    static Integer forward(String port, String[] args) {
+        int portNumber;
+        try {
+            portNumber = Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring invalid server port {}", port);
+            return null;
+        }
+
+        String token;
+        try {
+            token = new String(Files.readAllBytes(ServeCommand.tokenFile(portNumber)), StandardCharsets.US_ASCII)
+                    .trim();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read server token, executing locally: {}", e.toString());
+            return null;
+        }
+
+        byte input[] = new byte[0];
+        if (readsInput(args)) {
+            try {
+                input = IOUtils.toByteArray(System.in);
+            } catch (IOException e) {
+                LOGGER.error("Failed to read standard input", e);
+                return 1;
+            }
+        }
+
+        ServeCommand.Request request = new ServeCommand.Request();
+        request.Token = token;
+        request.Dir = PathUtil.CWD.toString();
+        request.Args = Arrays.asList(args);
+
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), portNumber);
+        } catch (IOException e) {
+            LOGGER.warn("Server is not available on port {}, executing locally: {}", portNumber, e.getMessage());
+            System.setIn(new ByteArrayInputStream(input));
+            return null;
+        }
+
+        try (Socket s = socket) {
+            OutputStream out = s.getOutputStream();
+            out.write((new Gson().toJson(request) + '\n').getBytes(StandardCharsets.UTF_8));
+            out.write(input);
+            out.flush();
+            s.shutdownOutput();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), BUFFER_SIZE));
+            OutputStream stdout = new BufferedOutputStream(System.out, BUFFER_SIZE);
+            byte buf[] = new byte[BUFFER_SIZE];
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case ServeCommand.FRAME_OUT:
+                        int length = in.readInt();
+                        while (length > 0) {
+                            int read = in.read(buf, 0, Math.min(length, buf.length));
+                            if (read < 0) {
+                                throw new EOFException();
+                            }
+                            stdout.write(buf, 0, read);
+                            length -= read;
+                        }
+                        break;
+                    case ServeCommand.FRAME_ERROR:
+                        LOGGER.warn("Server: {}", in.readUTF());
+                        break;
+                    case ServeCommand.FRAME_EXIT:
+                        int status = in.readInt();
+                        stdout.flush();
+                        if (status == ServeCommand.STATUS_REJECTED) {
+                            LOGGER.warn("Server refused to execute command, executing locally");
+                            System.setIn(new ByteArrayInputStream(input));
+                            return null;
+                        }
+                        return status;
+                    default:
+                        throw new IOException("Unexpected frame type " + type);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to communicate with server on port {}", portNumber, e);
+            return 1;
+        }
+    }
+
+    /**
+     * @return true if command reads source unit from standard input
+     */
+    private static boolean readsInput(String[] args) {
+        if (args.length == 0 || !("graph".equals(args[0]) || "depresolve".equals(args[0]))) {
+            return false;
+        }
+        for (String arg : args) {
+            if ("--debug-unit-file".equals(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
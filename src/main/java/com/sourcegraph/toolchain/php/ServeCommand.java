@@ -0,0 +1,316 @@
+package com.sourcegraph.toolchain.php;
+
+import com.beust.jcommander.Parameter;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sourcegraph.toolchain.core.PathUtil;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.lang3.SystemUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running server that executes scan, graph and depresolve requests in a single JVM, so that requests
+ * do not pay for JVM startup, class loading and building of lexer and parser DFA caches which are kept in
+ * static fields of generated recognizers and survive between requests.
+ *
+ * Server listens on a loopback port. Request is a single line of JSON (see {@link Request}) followed by
+ * bytes to be used as command's standard input, up to the end of stream. Response is a sequence of frames,
+ * each starting with a frame type byte: {@link #FRAME_OUT} followed by int length and a chunk of command's
+ * standard output, {@link #FRAME_ERROR} followed by UTF message, and {@link #FRAME_EXIT} followed by int exit
+ * status which terminates the response.
+ *
+ * Commands use process-wide standard streams, so requests are executed one at a time, each still may use
+ * multiple threads. Server serves the directory it was started in only, requests made from other directories
+ * are rejected with {@link #STATUS_REJECTED} and client executes them locally.
+ *
+ * Any local user can connect to loopback port, so server generates random token on start and writes it to
+ * a file readable by the owner only (see {@link #tokenFile(int)}). Requests that do not carry the token
+ * are rejected
+ */
+public class ServeCommand {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServeCommand.class);
+
+    /**
+     * Environment variable that holds server port. When set, commands are forwarded to server
+     */
+    static final String PORT_ENV = "SRCLIB_PHP_PORT";
+
+    static final byte FRAME_OUT = 'O';
+    static final byte FRAME_ERROR = 'E';
+    static final byte FRAME_EXIT = 'X';
+
+    /**
+     * Exit status telling client that request was not executed and it should execute command by itself
+     */
+    static final int STATUS_REJECTED = -1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int TOKEN_BYTES = 32;
+
+    /**
+     * Maximum length of request line in bytes, requests are rejected before authentication if line is longer
+     */
+    private static final int MAX_REQUEST_LINE = 64 * 1024;
+
+    /**
+     * Time client has to send request line in. Server executes one request at a time, so a connection that
+     * never sends its request would block everyone else
+     */
+    private static final long REQUEST_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
+    @Parameter(names = {"--port"}, description = "Loopback port to listen on, clients find it in SRCLIB_PHP_PORT environment variable")
+    int port = 7411;
+
+    @Parameter(names = {"--warmup"}, arity = 1, description = "Warm up lexer and parser caches using bundled PHP source before accepting requests (true by default)")
+    boolean warmup = true;
+
+    /**
+     * Main method
+     */
+    public void Execute() {
+        if (warmup) {
+            PHPGraph.warmup();
+        }
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            Path tokenFile = tokenFile(server.getLocalPort());
+            String token = writeToken(tokenFile);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtils.deleteQuietly(tokenFile.toFile())));
+            LOGGER.info("Serving {} on port {}, token is in {}", PathUtil.CWD, server.getLocalPort(), tokenFile);
+            while (true) {
+                try (Socket socket = server.accept()) {
+                    serve(socket, token);
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to serve request: {}", e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Unable to listen on port {}", port, e);
+            throw new CommandException();
+        }
+    }
+
+    /**
+     * @param port server port
+     * @return file that holds token of server listening on a given port
+     */
+    static Path tokenFile(int port) {
+        return SystemUtils.getUserHome().toPath().resolve(".srclib-php").resolve("serve-" + port + ".token");
+    }
+
+    /**
+     * Generates new token and writes it to a file that only current user can read, replacing existing one
+     * @param file token file
+     * @return generated token
+     * @throws IOException
+     */
+    private static String writeToken(Path file) throws IOException {
+        byte bytes[] = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Path dir = file.getParent();
+        boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (posix) {
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(dir);
+        }
+        // file is created anew, so that it never exists with wider permissions
+        Files.deleteIfExists(file);
+        if (posix) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, token.getBytes(StandardCharsets.US_ASCII));
+        return token;
+    }
+
+    /**
+     * Executes single request
+     * @param socket client connection
+     * @param token server token, request must carry the same one
+     * @throws IOException
+     */
+    private void serve(Socket socket, String token) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                BUFFER_SIZE));
+
+        socket.setSoTimeout((int) REQUEST_TIMEOUT_MS);
+        String line = readLine(in, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REQUEST_TIMEOUT_MS));
+        Request request = line == null ? null : parseRequest(line);
+        int status;
+        if (line == null) {
+            status = reject(out, "Request line is too long");
+        } else if (request == null || request.Args == null || request.Args.isEmpty() || request.Dir == null) {
+            status = reject(out, "Malformed request");
+        } else if (request.Token == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.US_ASCII),
+                request.Token.getBytes(StandardCharsets.US_ASCII))) {
+            status = reject(out, "Invalid token");
+        } else if ("serve".equals(request.Args.get(0))) {
+            status = reject(out, "Server cannot be started by server");
+        } else if (!PathUtil.CWD.equals(Paths.get(request.Dir).toAbsolutePath().normalize())) {
+            status = reject(out, "Server serves " + PathUtil.CWD + " only");
+        } else {
+            // client is authenticated, command's standard input is read without time limit
+            socket.setSoTimeout(0);
+            status = execute(request.Args, in, out);
+        }
+        out.writeByte(FRAME_EXIT);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /**
+     * Executes command with standard streams redirected to client connection
+     * @param args command line arguments
+     * @param in request input positioned at the beginning of command's standard input
+     * @param out response output
+     * @return exit status
+     */
+    private int execute(List<String> args, InputStream in, DataOutputStream out) {
+        LOGGER.info("Executing {}", args);
+        long start = System.currentTimeMillis();
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        PrintStream redirected = new PrintStream(new BufferedOutputStream(new FrameOutputStream(out), BUFFER_SIZE));
+        System.setIn(new CloseShieldInputStream(in));
+        System.setOut(redirected);
+        int status;
+        try {
+            status = Main.execute(args.toArray(new String[args.size()]));
+        } catch (Exception e) {
+            LOGGER.error("Unexpected error occurred while executing {}", args, e);
+            status = 1;
+        } finally {
+            redirected.flush();
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+        LOGGER.info("Executed {} with status {} in {} ms", args, status, System.currentTimeMillis() - start);
+        return status;
+    }
+
+    private static int reject(DataOutputStream out, String message) throws IOException {
+        LOGGER.warn("Rejecting request: {}", message);
+        out.writeByte(FRAME_ERROR);
+        out.writeUTF(message);
+        return STATUS_REJECTED;
+    }
+
+    /**
+     * Reads UTF-8 line without consuming bytes that follow it
+     * @param in input to read from
+     * @param deadline time line should be read by, as returned by System.nanoTime()
+     * @return line read or null if line is longer than {@link #MAX_REQUEST_LINE}
+     * @throws SocketTimeoutException if line was not read in time
+     * @throws IOException
+     */
+    private static String readLine(InputStream in, long deadline) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (line.size() >= MAX_REQUEST_LINE) {
+                return null;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new SocketTimeoutException("Request line was not received in time");
+            }
+            line.write(c);
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param line request line
+     * @return parsed request or null if line is not a valid JSON
+     */
+    private static Request parseRequest(String line) {
+        try {
+            return new Gson().fromJson(line, Request.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Request sent by client
+     */
+    static class Request {
+
+        /**
+         * Server token, see {@link #tokenFile(int)}
+         */
+        String Token;
+
+        /**
+         * Client's working directory
+         */
+        String Dir;
+
+        /**
+         * Command line arguments
+         */
+        List<String> Args;
+    }
+
+    /**
+     * Wraps everything written into output frames. Closing does not close underlying stream since
+     * commands close standard output when done
+     */
+    private static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            out.writeByte(FRAME_OUT);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
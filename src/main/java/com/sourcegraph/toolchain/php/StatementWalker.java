@@ -0,0 +1,102 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.php.antlr4.PHPParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.List;
+
+/**
+ * Parse listener that walks every top-level statement with file grapher as soon as parser completes it and then
+ * detaches statement from parse tree, so that parse tree of a whole file is never kept in memory, only the one
+ * of statement being parsed. Grapher sees the same sequence of events as if complete tree was walked because
+ * it does not listen to rules that enclose top-level statements. PHP blocks nested into statements
+ * (e.g. alternative syntax of control structures spanning several blocks) are walked together with
+ * enclosing statement, as well as braced namespace declarations.
+ *
+ * Note that parse tree cannot be dropped entirely with setBuildParseTree(false) since grapher navigates
+ * rule contexts' children
+ */
+class StatementWalker implements ParseTreeListener {
+
+    private FileGraph graph;
+    private FileGrapher grapher;
+
+    /**
+     * Time spent walking statements
+     */
+    long walkNanos;
+
+    /**
+     * @param graph file graph to collect definitions and references to
+     * @param grapher grapher that writes to a given file graph
+     */
+    StatementWalker(FileGraph graph, FileGrapher grapher) {
+        this.graph = graph;
+        this.grapher = grapher;
+    }
+
+    /**
+     * @return file graph statements were walked into
+     */
+    FileGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Discards everything collected so far, to be called before the same tokens are parsed again
+     */
+    void reset() {
+        graph = new FileGraph(graph.file);
+        grapher = new FileGrapher(graph, grapher.getSymbols(), grapher.getIndex());
+        walkNanos = 0;
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        if (!(ctx instanceof PHPParser.TopStatementContext) || !isOutermost(ctx)) {
+            return;
+        }
+        long start = System.nanoTime();
+        ParseTreeWalker.DEFAULT.walk(grapher, ctx);
+        walkNanos += System.nanoTime() - start;
+
+        ParserRuleContext parent = ctx.getParent();
+        if (parent == null) {
+            return;
+        }
+        List<ParseTree> children = parent.children;
+        // statement being exited is the last child added to its parent
+        if (children != null && !children.isEmpty() && children.get(children.size() - 1) == ctx) {
+            children.remove(children.size() - 1);
+        }
+    }
+
+    /**
+     * @return true if statement is not a part of another statement
+     */
+    private static boolean isOutermost(ParserRuleContext ctx) {
+        for (ParserRuleContext parent = ctx.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof PHPParser.TopStatementContext) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+    }
+}
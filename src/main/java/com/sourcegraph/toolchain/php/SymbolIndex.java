@@ -0,0 +1,317 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.php.antlr4.PHPLexer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Repository-wide index of classes, interfaces, traits and functions. Built by a declaration-only
+ * pass over lexer tokens, without parsing, before files are graphed, so that grapher may look up symbols
+ * declared in any file regardless of the order files are visited in. Names are case-insensitive, the same way
+ * PHP treats them. Symbols are added in file order, the first declaration of a name wins
+ */
+public class SymbolIndex {
+
+    enum Kind {
+        CLASS,
+        INTERFACE,
+        TRAIT,
+        FUNCTION
+    }
+
+    /**
+     * Declared symbol
+     */
+    static class Symbol {
+
+        /**
+         * Fully qualified name without leading backslash, as written in declaration
+         */
+        final String name;
+
+        final Kind kind;
+
+        /**
+         * File that declares symbol
+         */
+        final String file;
+
+        /**
+         * Offsets of the first and the last character of declared identifier
+         */
+        final int start;
+        final int end;
+
+        Symbol(String name, Kind kind, String file, Token identifier) {
+            this.name = name;
+            this.kind = kind;
+            this.file = file;
+            this.start = identifier.getStartIndex();
+            this.end = identifier.getStopIndex();
+        }
+
+        /**
+         * @return name without namespace
+         */
+        String getShortName() {
+            return name.substring(name.lastIndexOf('\\') + 1);
+        }
+    }
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-zA-Z_\\x80-\\uffff][a-zA-Z0-9_\\x80-\\uffff]*");
+
+    /**
+     * lowercased name => class, interface or trait, they share the same name space in PHP
+     */
+    private final Map<String, Symbol> types = new HashMap<>();
+
+    /**
+     * lowercased name => function
+     */
+    private final Map<String, Symbol> functions = new HashMap<>();
+
+    /**
+     * @param name fully qualified name without leading backslash
+     * @return class, interface or trait with a given name or null
+     */
+    Symbol getType(String name) {
+        return types.get(name.toLowerCase());
+    }
+
+    /**
+     * @param name fully qualified name without leading backslash
+     * @return function with a given name or null
+     */
+    Symbol getFunction(String name) {
+        return functions.get(name.toLowerCase());
+    }
+
+    /**
+     * @return number of indexed classes, interfaces, traits and functions
+     */
+    int size() {
+        return types.size() + functions.size();
+    }
+
+    /**
+     * @param symbol symbol, may be null
+     * @return symbol's name, empty string for null
+     */
+    static String nameOf(Symbol symbol) {
+        return symbol == null ? "" : symbol.name;
+    }
+
+    /**
+     * Adds symbols declared in a single file. Not thread-safe, declarations should be collected in parallel and
+     * then added in file order
+     * @param declarations file declarations
+     */
+    void add(Declarations declarations) {
+        for (Symbol symbol : declarations.symbols) {
+            Map<String, Symbol> target = symbol.kind == Kind.FUNCTION ? functions : types;
+            target.putIfAbsent(symbol.name.toLowerCase(), symbol);
+        }
+    }
+
+    /**
+     * Symbols declared in a single file, and files it includes
+     */
+    static class Declarations {
+
+        final List<Symbol> symbols = new ArrayList<>();
+
+        /**
+         * File names of include and require statements that take string literal, as written in source code,
+         * in order of appearance
+         */
+        final List<String> includes = new ArrayList<>();
+
+        /**
+         * Number of include and require statements that take any other expression
+         */
+        int dynamicIncludes;
+    }
+
+    /**
+     * Collects top-level declarations from tokens of a single file. Tracks curly brackets to tell functions
+     * from methods and braced namespace declarations from the other ones. Conditional declarations are
+     * collected as well. Include and require statements are collected along the way
+     * @param tokens tokens to scan
+     * @param file file name
+     * @return file declarations
+     */
+    static Declarations scan(TokenSource tokens, String file) {
+        Declarations ret = new Declarations();
+        String namespace = null;
+        int depth = 0;
+        // depth of braced namespace body, -1 if there is none
+        int namespaceDepth = -1;
+        // depths of class bodies being scanned
+        Deque<Integer> classDepths = new ArrayDeque<>();
+        boolean classBodyExpected = false;
+
+        Token prev = null;
+        Token token = next(tokens);
+        while (token.getType() != Token.EOF) {
+            switch (token.getType()) {
+                case PHPLexer.OpenCurlyBracket:
+                    depth++;
+                    if (classBodyExpected) {
+                        classDepths.push(depth);
+                        classBodyExpected = false;
+                    }
+                    break;
+                case PHPLexer.CloseCurlyBracket:
+                    if (!classDepths.isEmpty() && classDepths.peek() == depth) {
+                        classDepths.pop();
+                    }
+                    if (depth == namespaceDepth) {
+                        namespace = null;
+                        namespaceDepth = -1;
+                    }
+                    depth--;
+                    break;
+                case PHPLexer.Namespace: {
+                    Token next = next(tokens);
+                    if (next.getType() == PHPLexer.NamespaceSeparator) {
+                        // namespace\foo() - namespace-relative name, not a declaration
+                        prev = next;
+                        token = next(tokens);
+                        continue;
+                    }
+                    StringBuilder name = new StringBuilder();
+                    while (next.getType() != Token.EOF &&
+                            next.getType() != PHPLexer.SemiColon &&
+                            next.getType() != PHPLexer.OpenCurlyBracket) {
+                        name.append(next.getText());
+                        next = next(tokens);
+                    }
+                    namespace = name.length() == 0 ? null : name.toString();
+                    if (next.getType() == PHPLexer.OpenCurlyBracket) {
+                        depth++;
+                        namespaceDepth = depth;
+                    }
+                    prev = next;
+                    token = next(tokens);
+                    continue;
+                }
+                case PHPLexer.Class:
+                case PHPLexer.Interface:
+                case PHPLexer.Trait: {
+                    if (prev != null && prev.getType() == PHPLexer.DoubleColon) {
+                        // Foo::class
+                        break;
+                    }
+                    Token next = next(tokens);
+                    if (isIdentifier(next)) {
+                        Kind kind = token.getType() == PHPLexer.Class ? Kind.CLASS :
+                                token.getType() == PHPLexer.Interface ? Kind.INTERFACE : Kind.TRAIT;
+                        ret.symbols.add(new Symbol(qualify(namespace, next.getText()), kind, file, next));
+                    }
+                    // anonymous classes have bodies too
+                    classBodyExpected = true;
+                    prev = token;
+                    token = next;
+                    continue;
+                }
+                case PHPLexer.Include:
+                case PHPLexer.IncludeOnce:
+                case PHPLexer.Require:
+                case PHPLexer.RequireOnce: {
+                    if (prev != null && (prev.getType() == PHPLexer.ObjectOperator ||
+                            prev.getType() == PHPLexer.DoubleColon ||
+                            prev.getType() == PHPLexer.Function)) {
+                        // method named after keyword
+                        break;
+                    }
+                    Token next = next(tokens);
+                    boolean bracket = next.getType() == PHPLexer.OpenRoundBracket;
+                    if (bracket) {
+                        next = next(tokens);
+                    }
+                    String include = literal(next);
+                    if (include == null) {
+                        ret.dynamicIncludes++;
+                        prev = token;
+                        token = next;
+                        continue;
+                    }
+                    Token after = next(tokens);
+                    if (bracket && after.getType() == PHPLexer.CloseRoundBracket) {
+                        after = next(tokens);
+                    }
+                    if (after.getType() == PHPLexer.SemiColon || after.getType() == Token.EOF) {
+                        ret.includes.add(include);
+                    } else {
+                        // 'dir/' . $name
+                        ret.dynamicIncludes++;
+                    }
+                    prev = next;
+                    token = after;
+                    continue;
+                }
+                case PHPLexer.Function: {
+                    if (!classDepths.isEmpty()) {
+                        // method or closure inside of method
+                        break;
+                    }
+                    Token next = next(tokens);
+                    if (next.getType() == PHPLexer.Ampersand) {
+                        next = next(tokens);
+                    }
+                    if (isIdentifier(next)) {
+                        ret.symbols.add(new Symbol(qualify(namespace, next.getText()), Kind.FUNCTION, file, next));
+                    }
+                    prev = token;
+                    token = next;
+                    continue;
+                }
+            }
+            prev = token;
+            token = next(tokens);
+        }
+        return ret;
+    }
+
+    /**
+     * @return next token of default channel
+     */
+    private static Token next(TokenSource tokens) {
+        Token token;
+        do {
+            token = tokens.nextToken();
+        } while (token.getChannel() != Token.DEFAULT_CHANNEL && token.getType() != Token.EOF);
+        return token;
+    }
+
+    /**
+     * @return value of string literal without variables, null if token is not such a literal
+     */
+    private static String literal(Token token) {
+        switch (token.getType()) {
+            case PHPLexer.SingleQuoteString:
+                break;
+            case PHPLexer.DoubleQuoteString:
+                if (token.getText().indexOf('$') >= 0) {
+                    return null;
+                }
+                break;
+            default:
+                return null;
+        }
+        String text = token.getText();
+        String value = text.substring(1, text.length() - 1);
+        return value.isEmpty() || value.indexOf('\\') >= 0 ? null : value;
+    }
+
+    private static boolean isIdentifier(Token token) {
+        return token.getType() != Token.EOF && IDENTIFIER.matcher(token.getText()).matches();
+    }
+
+    private static String qualify(String namespace, String name) {
+        return namespace == null ? name : namespace + '\\' + name;
+    }
+}
@@ -0,0 +1,214 @@
+package com.sourcegraph.toolchain.php;
+
+import com.sourcegraph.toolchain.core.PathUtil;
+import com.sourcegraph.toolchain.core.ScanUtil;
+import com.sourcegraph.toolchain.core.SourceUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Partitions scanned files into multiple source units, so that large repositories may be graphed by several
+ * processes or machines. Files are grouped by composer.json package roots or by top-level directories, groups
+ * that exceed file count or size budget are split further into parts. Includes that cross unit boundaries are
+ * not followed when unit is graphed
+ */
+class UnitSplitter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnitSplitter.class);
+
+    /**
+     * Name of the unit that holds files not assigned to any other unit
+     */
+    static final String ROOT_UNIT = ".";
+
+    enum Mode {
+        /**
+         * Single unit for the whole repository
+         */
+        NONE,
+        /**
+         * Unit per composer.json, files belong to the nearest enclosing package root
+         */
+        COMPOSER,
+        /**
+         * Unit per top-level directory
+         */
+        DIR
+    }
+
+    private final Mode mode;
+
+    /**
+     * Maximum number of files per unit, 0 if not limited
+     */
+    private final int maxFiles;
+
+    /**
+     * Maximum total size of unit's files in bytes, 0 if not limited
+     */
+    private final long maxBytes;
+
+    UnitSplitter(Mode mode, int maxFiles, long maxBytes) {
+        this.mode = mode;
+        this.maxFiles = maxFiles;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param files files to split, absolute or relative to current working directory
+     * @param rootDir directory of the root unit
+     * @param excludes glob patterns of files and directories to skip when looking for composer.json files
+     * @param threads number of threads to scan for composer.json files with
+     * @return source units, ordered by name
+     * @throws IOException
+     */
+    Collection<SourceUnit> split(Collection<String> files,
+                                 String rootDir,
+                                 Collection<String> excludes,
+                                 int threads) throws IOException {
+
+        // unit name => unit
+        Map<String, SourceUnit> groups = new TreeMap<>();
+        SourceUnit root = unit(ROOT_UNIT, rootDir);
+
+        switch (mode) {
+            case COMPOSER:
+                Map<String, SourceUnit> packages = packages(excludes, threads);
+                for (String file : files) {
+                    SourceUnit unit = packages.get(StringUtils.EMPTY);
+                    for (Path dir = relative(file).getParent(); dir != null; dir = dir.getParent()) {
+                        SourceUnit candidate = packages.get(PathUtil.normalize(dir.toString()));
+                        if (candidate != null) {
+                            unit = candidate;
+                            break;
+                        }
+                    }
+                    if (unit == null) {
+                        unit = root;
+                    }
+                    unit.Files.add(file);
+                    groups.put(unit.Name, unit);
+                }
+                break;
+            case DIR:
+                for (String file : files) {
+                    Path path = relative(file);
+                    SourceUnit unit;
+                    if (path.getNameCount() > 1 && !path.startsWith("..")) {
+                        String dir = path.getName(0).toString();
+                        unit = groups.get(dir);
+                        if (unit == null) {
+                            unit = unit(dir, dir);
+                            groups.put(dir, unit);
+                        }
+                    } else {
+                        unit = root;
+                        groups.put(root.Name, root);
+                    }
+                    unit.Files.add(file);
+                }
+                break;
+            default:
+                root.Files.addAll(files);
+                groups.put(root.Name, root);
+        }
+
+        if (maxFiles <= 0 && maxBytes <= 0) {
+            return groups.values();
+        }
+        Collection<SourceUnit> units = new ArrayList<>();
+        for (SourceUnit unit : groups.values()) {
+            units.addAll(parts(unit));
+        }
+        return units;
+    }
+
+    /**
+     * Finds composer.json files
+     * @return package root directory relative to current working directory => unit
+     */
+    private static Map<String, SourceUnit> packages(Collection<String> excludes, int threads) throws IOException {
+        Map<String, SourceUnit> packages = new TreeMap<>();
+        Set<String> names = new HashSet<>();
+        List<String> manifests = ScanUtil.scanFiles(PathUtil.CWD.toString(),
+                new String[]{ComposerJson.FILE_NAME},
+                excludes,
+                threads);
+        // making names of nested packages predictable
+        Collections.sort(manifests);
+        for (String manifest : manifests) {
+            Path path = relative(manifest);
+            if (!ComposerJson.FILE_NAME.equals(path.getFileName().toString())) {
+                continue;
+            }
+            String dir = path.getParent() == null ? StringUtils.EMPTY : PathUtil.normalize(path.getParent().toString());
+            String name = null;
+            ComposerJson composerJson = ComposerJson.read(Paths.get(manifest));
+            if (composerJson != null) {
+                name = composerJson.name;
+            }
+            if (StringUtils.isEmpty(name) || !names.add(name)) {
+                name = dir.isEmpty() ? ROOT_UNIT : dir;
+            }
+            LOGGER.debug("Found composer package {} in {}", name, dir.isEmpty() ? ROOT_UNIT : dir);
+            packages.put(dir, unit(name, dir.isEmpty() ? ROOT_UNIT : dir));
+        }
+        return packages;
+    }
+
+    /**
+     * Splits unit into parts that fit into budget
+     * @param unit unit to split
+     * @return unit itself if it fits or list of parts named "name#N" otherwise
+     */
+    private Collection<SourceUnit> parts(SourceUnit unit) throws IOException {
+        List<String> files = new ArrayList<>(unit.Files);
+        Collections.sort(files);
+        List<SourceUnit> parts = new ArrayList<>();
+        SourceUnit part = null;
+        long partBytes = 0;
+        for (String file : files) {
+            long size = maxBytes > 0 ? Files.size(Paths.get(file)) : 0;
+            if (part == null ||
+                    (maxFiles > 0 && part.Files.size() >= maxFiles) ||
+                    (maxBytes > 0 && partBytes + size > maxBytes && !part.Files.isEmpty())) {
+                part = unit(unit.Name, unit.Dir);
+                parts.add(part);
+                partBytes = 0;
+            }
+            part.Files.add(file);
+            partBytes += size;
+        }
+        if (parts.size() < 2) {
+            return Collections.singleton(unit);
+        }
+        for (int i = 0; i < parts.size(); i++) {
+            parts.get(i).Name = unit.Name + '#' + (i + 1);
+        }
+        return parts;
+    }
+
+    private static Path relative(String file) {
+        Path path = Paths.get(file);
+        if (path.isAbsolute()) {
+            path = PathUtil.CWD.relativize(path);
+        }
+        return path;
+    }
+
+    private static SourceUnit unit(String name, String dir) {
+        SourceUnit unit = new SourceUnit();
+        unit.Type = "PHP";
+        unit.Name = name;
+        unit.Dir = dir;
+        unit.Files = new ArrayList<>();
+        return unit;
+    }
+}
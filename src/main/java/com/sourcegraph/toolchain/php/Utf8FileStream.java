@@ -0,0 +1,113 @@
+package com.sourcegraph.toolchain.php;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Character stream that decodes UTF-8 file directly into character buffer. Large files are memory-mapped
+ * instead of being read through Reader, and character buffer may be provided by caller to be reused
+ * between files. Malformed input is replaced with U+FFFD
+ */
+public class Utf8FileStream extends ANTLRInputStream {
+
+    /**
+     * Files larger than this are memory-mapped
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    /**
+     * Size of chunks mapped files are decoded by
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * File size in bytes
+     */
+    private final long byteSize;
+
+    /**
+     * @param file file to read
+     * @param buffer character buffer to decode file into, used if it's large enough. Caller may reuse it
+     *               (or the one returned by getBuffer()) for the next file once this stream is no longer used
+     * @throws IOException
+     */
+    public Utf8FileStream(String file, char buffer[]) throws IOException {
+        this.name = file;
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            this.byteSize = size;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large: " + size + " bytes");
+            }
+            ByteBuffer bytes;
+            if (size > MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                }
+                bytes.flip();
+            }
+            // UTF-8 never produces more chars than bytes
+            if (buffer == null || buffer.length < bytes.remaining()) {
+                buffer = new char[bytes.remaining()];
+            }
+            CharBuffer chars = CharBuffer.wrap(buffer);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().
+                    onMalformedInput(CodingErrorAction.REPLACE).
+                    onUnmappableCharacter(CodingErrorAction.REPLACE);
+            if (bytes.hasArray()) {
+                decode(decoder, bytes, chars, true);
+            } else {
+                // decoder is much faster on heap buffers, feeding mapped bytes chunk by chunk
+                ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+                while (bytes.hasRemaining()) {
+                    int length = Math.min(chunk.remaining(), bytes.remaining());
+                    bytes.get(chunk.array(), chunk.position(), length);
+                    chunk.position(chunk.position() + length);
+                    chunk.flip();
+                    decode(decoder, chunk, chars, !bytes.hasRemaining());
+                    // keeping incomplete multi-byte sequence for the next round
+                    chunk.compact();
+                }
+            }
+            decoder.flush(chars);
+            this.data = buffer;
+            this.n = chars.position();
+        }
+    }
+
+    private static void decode(CharsetDecoder decoder,
+                               ByteBuffer bytes,
+                               CharBuffer chars,
+                               boolean endOfInput) throws IOException {
+        CoderResult result = decoder.decode(bytes, chars, endOfInput);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+    }
+
+    /**
+     * @return file size in bytes, stream size is in decoded characters
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    /**
+     * @return character buffer holding file content
+     */
+    public char[] getBuffer() {
+        return data;
+    }
+}
@@ -0,0 +1,184 @@
+<!DOCTYPE html>
+<html>
+<head>
+    <title><?= htmlspecialchars($title) ?></title>
+    <script type="text/javascript">var x = 1;</script>
+    <style>body { margin: 0; }</style>
+</head>
+<body>
+<?php
+
+namespace Warmup\Sample;
+
+use Warmup\Base\Model;
+use Warmup\Base\Repository as Repo;
+use Warmup\Contracts\Countable;
+use Warmup\Contracts\Jsonable;
+
+require_once __DIR__ . '/bootstrap.php';
+include 'helpers.php';
+
+const VERSION = '1.0';
+define('DEBUG', true);
+
+interface Shape extends Countable, Jsonable
+{
+    const SIDES = 0;
+
+    public function area();
+
+    public static function create(array $args = []);
+}
+
+trait Named
+{
+    protected $name = 'unnamed';
+
+    public function getName()
+    {
+        return $this->name;
+    }
+}
+
+abstract class AbstractShape extends Model implements Shape
+{
+    use Named;
+
+    private static $count = 0;
+    protected $points = array();
+    public $color = null, $visible = true;
+
+    public function __construct($name, array $points = [], Repo $repo = null)
+    {
+        parent::__construct();
+        $this->name = $name;
+        $this->points = $points;
+        self::$count++;
+        static::$count += 1;
+    }
+
+    abstract public function area();
+
+    public function count()
+    {
+        return count($this->points);
+    }
+
+    public function toJson($options = 0)
+    {
+        return json_encode(['name' => $this->name, 'area' => $this->area()], $options);
+    }
+
+    final protected function &points()
+    {
+        return $this->points;
+    }
+}
+
+final class Circle extends AbstractShape
+{
+    public function area()
+    {
+        return M_PI * $this->radius ** 2;
+    }
+
+    public static function create(array $args = [])
+    {
+        return new static('circle', $args);
+    }
+}
+
+function compute(Shape $shape, $factor = 1.5, ...$rest)
+{
+    global $config, $registry;
+    static $calls = 0;
+    $calls++;
+
+    $total = 0;
+    foreach ($rest as $key => $value) {
+        if ($value instanceof Shape) {
+            $total += $value->area() * $factor;
+        } elseif (is_numeric($value)) {
+            $total += (float)$value;
+        } else {
+            continue;
+        }
+    }
+
+    for ($i = 0, $n = count($rest); $i < $n; $i++) {
+        $total -= $i % 2 === 0 ? $i : -$i;
+    }
+
+    while ($total > 1000) {
+        $total /= 2;
+    }
+
+    do {
+        $total++;
+    } while ($total < 10);
+
+    switch ($shape::SIDES) {
+        case 0:
+            $kind = 'round';
+            break;
+        case 3:
+        case 4:
+            $kind = "polygon with {$shape->count()} points";
+            break;
+        default:
+            $kind = null;
+    }
+
+    try {
+        $result = isset($registry[$kind]) ? $registry[$kind] : $shape->toJson(JSON_PRETTY_PRINT);
+    } catch (\InvalidArgumentException $e) {
+        throw new \RuntimeException($e->getMessage(), 1, $e);
+    } finally {
+        unset($tmp);
+    }
+
+    $callback = function ($x) use ($factor, &$total) {
+        return $x * $factor + $total;
+    };
+    $mapped = array_map($callback, [1, 2, 3]);
+    list($a, $b) = [$mapped[0], $mapped[1]];
+
+    $text = <<<EOT
+Shape $kind has area {$shape->area()}
+EOT;
+    $raw = <<<'EOT'
+raw $text
+EOT;
+
+    echo "Total: $total, ", 'kind: ' . $kind, PHP_EOL;
+    print sprintf('%s %d', $text, @$undefined);
+
+    return isset($result) && !empty($mapped) ? $result : $raw;
+}
+
+$circle = Circle::create([1, 2]);
+$value = compute($circle, 2, $circle, '3', 4);
+$items = [
+    'a' => 1,
+    'b' => [true, false, null],
+    'c' => $circle->getName(),
+];
+$items['d'] = $value;
+$clone = clone $circle;
+$string = (string)$clone->color;
+$cast = (int)"42" + (array)null;
+$ternary = $value ?: 'default';
+if ($value):
+    echo $value;
+endif;
+foreach ($items as $k => &$v):
+    $v = strtoupper($k);
+endforeach;
+?>
+<ul>
+<?php foreach ($items as $item): ?>
+    <li><?= $item ?></li>
+<?php endforeach; ?>
+</ul>
+</body>
+</html>